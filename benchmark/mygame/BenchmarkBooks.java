@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+/**
+ * Generates pop-up designs for the benchmarks.
+ * A design is made of bands along the spine, each holding a V-fold with further V-folds nested on top of it,
+ * so a design with b bands and depth d has 2 + 2 * b * d patches.
+ * @author Evans
+ */
+public class BenchmarkBooks {
+    //dimension of the design
+    private static final float WIDTH = 4f;
+    private static final float HEIGHT = 5.5f;
+    //depth of nested V-folds in every band
+    public static final int DEPTH = 3;
+    //angle between a V-fold and the spine
+    private static final float V_ANGLE = FastMath.PI * 3f / 16f;
+
+    /**
+     * Generates a design
+     * @param bands number of bands along the spine
+     * @return the unfolded design
+     */
+    public static PopUpBookTree generate(int bands) {
+        PopUpBookTree book = new PopUpBookTree(WIDTH, HEIGHT);
+        PopUpBookTree.PatchNode back = book.getBack();
+        PopUpBookTree.PatchNode front = book.getFront();
+        for (int i = 0; i < bands; i++) {
+            Vector3f spine1 = new Vector3f(0f, 0f, -HEIGHT / 2f + HEIGHT * i / bands);
+            Vector3f spine2 = new Vector3f(0f, 0f, -HEIGHT / 2f + HEIGHT * (i + 1) / bands);
+            PopUpBookTree.PatchNode[] pair = addVFold(book, back, front, spine1, spine2,
+                    Vector3f.UNIT_X, Vector3f.UNIT_X.negate(), Vector3f.UNIT_Y, spine1.distance(spine2) * 0.35f);
+            for (int depth = 1; depth < DEPTH; depth++) {
+                Vector3f fold1 = pair[0].boundary[1];
+                Vector3f fold2 = pair[0].boundary[2];
+                Vector3f dirrection = fold2.subtract(fold1).normalizeLocal();
+                Vector3f inA = perpendicular(dirrection, pair[0].boundary[0].subtract(fold1));
+                Vector3f inB = perpendicular(dirrection, pair[1].boundary[0].subtract(fold1));
+                pair = addVFold(book, pair[0], pair[1], fold1, fold2,
+                        inA, inB, inA.add(inB).negateLocal(), fold1.distance(fold2) * 0.3f);
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Adds a V-fold across the crease between two patches
+     * @param book design to add to
+     * @param parentA parent of patch A
+     * @param parentB parent of patch B
+     * @param crease1 first point of the crease between the parents
+     * @param crease2 second point of the crease between the parents
+     * @param inA dirrection into parent A, perpendicular to the crease
+     * @param inB dirrection into parent B, perpendicular to the crease
+     * @param up dirrection the V-fold stands up to
+     * @param length length of the V-fold along the crease
+     * @return the two patches of the V-fold
+     */
+    private static PopUpBookTree.PatchNode[] addVFold(PopUpBookTree book, PopUpBookTree.PatchNode parentA, PopUpBookTree.PatchNode parentB,
+            Vector3f crease1, Vector3f crease2, Vector3f inA, Vector3f inB, Vector3f up, float length) {
+        Vector3f dirrection = crease2.subtract(crease1).normalizeLocal();
+        Vector3f center = crease1.add(crease2).divideLocal(2f);
+        Vector3f end = center.subtract(dirrection.mult(length));
+        float side = FastMath.tan(V_ANGLE) * length;
+        Vector3f pointA = end.add(inA.mult(side));
+        Vector3f pointB = end.add(inB.mult(side));
+        Vector3f normal = pointA.subtract(center).crossLocal(pointB.subtract(center)).normalizeLocal();
+        if (normal.dot(up) < 0) {
+            normal.negateLocal();
+        }
+        Vector3f top = center.add(normal.multLocal(length / 1.61f));
+        PopUpBookTree.PatchNode patchA = book.addPatch(parentA, new Vector3f[]{pointA, center, top}, new Vector3f[]{pointA.clone(), center.clone()});
+        PopUpBookTree.PatchNode patchB = book.addPatch(parentB, new Vector3f[]{pointB, center.clone(), top.clone()}, new Vector3f[]{pointB.clone(), center.clone()});
+        book.addJoint(patchA, patchB, new Vector3f[]{top.clone(), center.clone()}, "D1Joint");
+        return new PopUpBookTree.PatchNode[]{patchA, patchB};
+    }
+
+    /**
+     * Gets the part of a vector perpendicular to a dirrection
+     * @param dirrection normalized dirrection
+     * @param vector vector to project
+     * @return the normalized perpendicular part
+     */
+    private static Vector3f perpendicular(Vector3f dirrection, Vector3f vector) {
+        return vector.subtract(dirrection.mult(vector.dot(dirrection))).normalizeLocal();
+    }
+}
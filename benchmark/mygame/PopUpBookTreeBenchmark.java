@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of folding a design and checking it for collisions.
+ * @author Evans
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PopUpBookTreeBenchmark {
+    //number of bands of V-folds along the spine, see BenchmarkBooks
+    @Param({"1", "4", "16", "64"})
+    public int bands;
+
+    //number of steps the fold animation takes between unfolded and folded
+    private static final int STEPS = 64;
+
+    private PopUpBookTree book;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        book = BenchmarkBooks.generate(bands);
+        book.fold(0.5f);
+        step = 0;
+    }
+
+    /**
+     * One frame of the fold animation, folding a small step from the last pose
+     */
+    @Benchmark
+    public void fold() {
+        step = (step + 1) % STEPS;
+        book.fold(0.999f * step / STEPS);
+    }
+
+    /**
+     * Folding to a percentage from the unfolded position
+     */
+    @Benchmark
+    public void foldFromReset() {
+        book.reset();
+        book.fold(0.5f);
+    }
+
+    @Benchmark
+    public Object getCollisions() {
+        return book.getCollisions();
+    }
+
+    /**
+     * Sweeping the whole fold for collisions, each step folded on top of the last
+     */
+    @Benchmark
+    public Object getCollisionTimeline() {
+        return book.getCollisionTimeline();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.math.Vector3f;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the geometry kernels in Util, run over every patch of a design half way folded.
+ * @author Evans
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+    //number of bands of V-folds along the spine, see BenchmarkBooks
+    @Param({"1", "4", "16", "64"})
+    public int bands;
+
+    //boundaries and axis of every patch in the folded position
+    private Vector3f[][] boundaries;
+    private float[][] packedBoundaries;
+    private Vector3f[][] axis;
+    private Vector3f[] centers;
+    private Vector3f store;
+
+    @Setup
+    public void setUp() {
+        PopUpBookTree book = BenchmarkBooks.generate(bands);
+        book.fold(0.5f);
+        boundaries = new Vector3f[book.getPatches().size()][];
+        packedBoundaries = new float[boundaries.length][];
+        axis = new Vector3f[boundaries.length][];
+        centers = new Vector3f[boundaries.length];
+        int i = 0;
+        for (PopUpBookTree.PatchNode patch : book.getPatches()) {
+            Vector3f[] boundary = patch.getTranslatedBoundary();
+            packedBoundaries[i] = patch.getCurrentPoints().clone();
+            boundaries[i] = new Vector3f[boundary.length];
+            centers[i] = new Vector3f();
+            for (int x = 0; x < boundary.length; x++) {
+                boundaries[i][x] = boundary[x].clone();
+                centers[i].addLocal(boundary[x]);
+            }
+            axis[i] = new Vector3f[]{boundaries[i][0], boundaries[i][1]};
+            centers[i].divideLocal(boundaries[i].length);
+            i++;
+        }
+        store = new Vector3f();
+    }
+
+    @Benchmark
+    public void rotatePoint(Blackhole blackhole) {
+        for (int i = 0; i < boundaries.length; i++) {
+            for (Vector3f point : boundaries[i]) {
+                blackhole.consume(Util.rotatePoint(point, axis[i][0], axis[i][1], 0.5f, store));
+            }
+        }
+    }
+
+    @Benchmark
+    public void inBoundary(Blackhole blackhole) {
+        for (int i = 0; i < boundaries.length; i++) {
+            blackhole.consume(Util.inBoundary(centers[i], boundaries[i]));
+        }
+    }
+
+    @Benchmark
+    public void boundboundIntersect(Blackhole blackhole) {
+        for (int i = 0; i < boundaries.length; i++) {
+            for (int j = i + 1; j < boundaries.length; j++) {
+                blackhole.consume(Util.boundboundIntersect(boundaries[i], boundaries[j]));
+            }
+        }
+    }
+
+    @Benchmark
+    public void boundboundIntersectPacked(Blackhole blackhole) {
+        for (int i = 0; i < packedBoundaries.length; i++) {
+            for (int j = i + 1; j < packedBoundaries.length; j++) {
+                blackhole.consume(Util.boundboundIntersect(packedBoundaries[i], packedBoundaries[j]));
+            }
+        }
+    }
+
+    @Benchmark
+    public void makeMesh(Blackhole blackhole) {
+        for (Vector3f[] boundary : boundaries) {
+            blackhole.consume(Util.makeMesh(boundary));
+        }
+    }
+}
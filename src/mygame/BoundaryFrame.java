@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+/**
+ * A boundary flattened into its own plane. The plane is given by the first vertex, two axes and the normal,
+ * and the vertices are kept as 2D coordinates along the axes, so containment, on-boundary and ray-cast checks
+ * are done in 2D. Moving the boundary rigidly only moves the plane, the 2D coordinates stay the same.
+ * @author Evans
+ */
+public class BoundaryFrame {
+    //2D coordinates of the vertices, shared by the frames of the same boundary
+    private final float[] xs;
+    private final float[] ys;
+    //bounding box of the 2D coordinates
+    private float minX = Float.POSITIVE_INFINITY;
+    private float minY = Float.POSITIVE_INFINITY;
+    private float maxX = Float.NEGATIVE_INFINITY;
+    private float maxY = Float.NEGATIVE_INFINITY;
+    private final boolean flat;
+
+    private final Vector3f origin = new Vector3f();
+    private final Vector3f axisX = new Vector3f();
+    private final Vector3f axisY = new Vector3f();
+    private final Vector3f normal = new Vector3f();
+
+    /**
+     * Constructor of the BoundaryFrame
+     * @param boundary the vertices making the boundary
+     */
+    public BoundaryFrame(Vector3f[] boundary) {
+        this(Util.toPacked(boundary));
+    }
+
+    /**
+     * Constructor of the BoundaryFrame for a packed boundary
+     * @param boundary x, y and z of each vertex one after the other
+     */
+    public BoundaryFrame(float[] boundary) {
+        int size = boundary.length / 3;
+        xs = new float[size];
+        ys = new float[size];
+        origin.set(boundary[0], boundary[1], boundary[2]);
+        flat = Util.getBountdaryNormal(boundary, normal);
+        if (!flat) {
+            return;
+        }
+        //the x axis is along the first edge that has a length
+        for (int i = 1; i < size && axisX.lengthSquared() == 0f; i++) {
+            axisX.set(boundary[i * 3], boundary[i * 3 + 1], boundary[i * 3 + 2]).subtractLocal(origin);
+        }
+        axisX.normalizeLocal();
+        normal.cross(axisX, axisY).normalizeLocal();
+        Vector3f offset = new Vector3f();
+        for (int i = 0; i < size; i++) {
+            offset.set(boundary[i * 3], boundary[i * 3 + 1], boundary[i * 3 + 2]).subtractLocal(origin);
+            xs[i] = offset.dot(axisX);
+            ys[i] = offset.dot(axisY);
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+    }
+
+    /**
+     * Constructor for a frame of the same boundary in another position
+     * @param shape the frame whose 2D coordinates are shared
+     */
+    private BoundaryFrame(BoundaryFrame shape) {
+        xs = shape.xs;
+        ys = shape.ys;
+        minX = shape.minX;
+        minY = shape.minY;
+        maxX = shape.maxX;
+        maxY = shape.maxY;
+        flat = shape.flat;
+    }
+
+    /**
+     * Makes a frame of the same boundary, to be placed with place
+     * @return the new frame
+     */
+    BoundaryFrame copyShape() {
+        BoundaryFrame copy = new BoundaryFrame(this);
+        copy.origin.set(origin);
+        copy.axisX.set(axisX);
+        copy.axisY.set(axisY);
+        copy.normal.set(normal);
+        return copy;
+    }
+
+    /**
+     * Places this frame where a rigid transform moves another frame of the same boundary
+     * @param from the frame of the boundary to move
+     * @param rotation rotation of the transform
+     * @param translation translation of the transform
+     */
+    void place(BoundaryFrame from, Quaternion rotation, Vector3f translation) {
+        rotation.mult(from.origin, origin).addLocal(translation);
+        rotation.mult(from.axisX, axisX);
+        rotation.mult(from.axisY, axisY);
+        rotation.mult(from.normal, normal);
+    }
+
+    /**
+     * Checks if the boundary has a normal, a boundary without one contains nothing
+     * @return true if the boundary has a normal
+     */
+    public boolean isFlat() {
+        return flat;
+    }
+
+    /**
+     * Gets the first vertex of the boundary, which the frame is placed on
+     * @return the origin of the frame, not to be changed
+     */
+    public Vector3f getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Gets the normal of the boundary
+     * @return the normal, not to be changed
+     */
+    public Vector3f getNormal() {
+        return normal;
+    }
+
+    /**
+     * Checks if a point is in the plane of the boundary, seen from the origin of the frame.
+     * The cosine between the normal and the direction from the origin to the point has to be below Util.FLT_EPSILON
+     * @param target the point
+     * @return true if the point is in the plane
+     */
+    private boolean inPlane(Vector3f target) {
+        float offsetX = target.x - origin.x;
+        float offsetY = target.y - origin.y;
+        float offsetZ = target.z - origin.z;
+        float length = FastMath.sqrt(offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ);
+        if (length == 0f) {
+            return true;
+        }
+        return FastMath.abs(offsetX * normal.x + offsetY * normal.y + offsetZ * normal.z) / length < Util.FLT_EPSILON;
+    }
+
+    /**
+     * Checks if a point is coplanar and within the boundary, points on the edges count as within
+     * @param target the point
+     * @return true if the target is coplanar and within the boundary
+     */
+    public boolean contains(Vector3f target) {
+        if (!flat || !inPlane(target)) {
+            return false;
+        }
+        float x = toX(target);
+        float y = toY(target);
+        if (x < minX - Util.FLT_EPSILON || x > maxX + Util.FLT_EPSILON || y < minY - Util.FLT_EPSILON || y > maxY + Util.FLT_EPSILON) {
+            return false;
+        }
+        int size = xs.length;
+        int winding = 0;
+        for (int i = 0; i < size; i++) {
+            int next = (i + 1) % size;
+            if (onEdge(i, next, x, y)) {
+                return true;
+            }
+            //the winding number counts the edges going up left of the point and those going down right of it
+            if (ys[i] <= y) {
+                if (ys[next] > y && side(i, next, x, y) > 0) {
+                    winding++;
+                }
+            } else if (ys[next] <= y && side(i, next, x, y) < 0) {
+                winding--;
+            }
+        }
+        return winding != 0;
+    }
+
+    /**
+     * Checks if a point is on one of the edges of the boundary
+     * @param target the point
+     * @return true if the target is on an edge
+     */
+    public boolean onBoundary(Vector3f target) {
+        if (!flat || !inPlane(target)) {
+            return false;
+        }
+        float x = toX(target);
+        float y = toY(target);
+        for (int i = 0; i < xs.length; i++) {
+            if (onEdge(i, (i + 1) % xs.length, x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cast a Ray along the plane of the boundary and checks for collision with the frame of the boundary only.
+     * Edges in line with the ray start are skipped, and the ray is 100 long, the same as Util.castRayOnBoundary.
+     * @param rayStart start of the ray, in the plane of the boundary
+     * @param rayDir direction of the ray
+     * @return the closest point of collision, null if there is none
+     */
+    public Vector3f castRay(Vector3f rayStart, Vector3f rayDir) {
+        if (!flat) {
+            return null;
+        }
+        float length = rayDir.length();
+        if (length == 0f) {
+            return null;
+        }
+        float startX = toX(rayStart);
+        float startY = toY(rayStart);
+        float dirX = rayDir.dot(axisX) * 100f / length;
+        float dirY = rayDir.dot(axisY) * 100f / length;
+        float closest = Float.POSITIVE_INFINITY;
+        int size = xs.length;
+        for (int i = 0; i < size; i++) {
+            int next = (i + 1) % size;
+            if (inLine(i, next, startX, startY)) {
+                continue;
+            }
+            float edgeX = xs[next] - xs[i];
+            float edgeY = ys[next] - ys[i];
+            float denom = dirX * edgeY - dirY * edgeX;
+            //only keeps the divisions below away from zero, edges in line with the ray are skipped above
+            if (FastMath.abs(denom) < FastMath.FLT_EPSILON) {
+                continue;
+            }
+            float toEdgeX = xs[i] - startX;
+            float toEdgeY = ys[i] - startY;
+            //where the hit is along the ray and along the edge, 0 at the start and 1 at the end
+            float alongRay = (toEdgeX * edgeY - toEdgeY * edgeX) / denom;
+            float alongEdge = (toEdgeX * dirY - toEdgeY * dirX) / denom;
+            float slackRay = Util.FLT_EPSILON / 100f;
+            float slackEdge = Util.FLT_EPSILON / FastMath.sqrt(edgeX * edgeX + edgeY * edgeY);
+            if (alongRay >= -slackRay && alongRay <= 1 + slackRay
+                    && alongEdge >= -slackEdge && alongEdge <= 1 + slackEdge && alongRay < closest) {
+                closest = Math.max(alongRay, 0f);
+            }
+        }
+        if (closest == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        return toPoint(startX + dirX * closest, startY + dirY * closest, new Vector3f());
+    }
+
+    /**
+     * Checks if a infinely long line in the plane of the boundary touches the frame of the boundary
+     * @param linePoint point that defines the line
+     * @param lineDir the direction of the line
+     * @return true if the line touches the boundary
+     */
+    public boolean touchesLine(Vector3f linePoint, Vector3f lineDir) {
+        return castRay(linePoint, lineDir) != null || castRay(linePoint, lineDir.negate()) != null;
+    }
+
+    /**
+     * Gets the point of the plane at 2D coordinates
+     * @param x coordinate along the x axis
+     * @param y coordinate along the y axis
+     * @param store vector to store the point in
+     * @return store
+     */
+    public Vector3f toPoint(float x, float y, Vector3f store) {
+        return store.set(origin.x + axisX.x * x + axisY.x * y,
+                origin.y + axisX.y * x + axisY.y * y,
+                origin.z + axisX.z * x + axisY.z * y);
+    }
+
+    /**
+     * Gets the coordinate of a point along the x axis
+     */
+    private float toX(Vector3f point) {
+        return (point.x - origin.x) * axisX.x + (point.y - origin.y) * axisX.y + (point.z - origin.z) * axisX.z;
+    }
+
+    /**
+     * Gets the coordinate of a point along the y axis
+     */
+    private float toY(Vector3f point) {
+        return (point.x - origin.x) * axisY.x + (point.y - origin.y) * axisY.y + (point.z - origin.z) * axisY.z;
+    }
+
+    /**
+     * Which side of an edge a point is, 1 if left of the edge, -1 if right and 0 if in line, see Util.orient2d
+     */
+    private int side(int start, int end, float x, float y) {
+        return Util.orient2d(xs[start], ys[start], xs[end], ys[end], x, y);
+    }
+
+    /**
+     * Same as Util.inLine in 2D, if a point is in line with an edge
+     */
+    private boolean inLine(int start, int end, float x, float y) {
+        float x1 = xs[start] - x;
+        float y1 = ys[start] - y;
+        float x2 = x - xs[end];
+        float y2 = y - ys[end];
+        float squared1 = x1 * x1 + y1 * y1;
+        float squared2 = x2 * x2 + y2 * y2;
+        if (squared1 < Util.FLT_EPSILON * Util.FLT_EPSILON || squared2 < Util.FLT_EPSILON * Util.FLT_EPSILON) {
+            return true;
+        }
+        return FastMath.abs(x1 * y2 - y1 * x2) < Util.FLT_EPSILON * FastMath.sqrt(squared1 * squared2);
+    }
+
+    /**
+     * Same as Util.inLine and Util.isBetween in 2D, if a point is on an edge
+     */
+    private boolean onEdge(int start, int end, float x, float y) {
+        float x1 = x - xs[start];
+        float y1 = y - ys[start];
+        float x2 = xs[end] - x;
+        float y2 = ys[end] - y;
+        float squared1 = x1 * x1 + y1 * y1;
+        float squared2 = x2 * x2 + y2 * y2;
+        if (squared1 < Util.FLT_EPSILON * Util.FLT_EPSILON || squared2 < Util.FLT_EPSILON * Util.FLT_EPSILON) {
+            return true;
+        }
+        return x1 * x2 + y1 * y2 > 0 && FastMath.abs(x1 * y2 - y1 * x2) < Util.FLT_EPSILON * FastMath.sqrt(squared1 * squared2);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.app.Application;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+
+/**
+ * Works out the safety area of a joint being edited on a background thread, so dragging stays smooth however long it takes.
+ * Only the latest request is worked on and handed to the listener, on the render thread, see LatestWinsWorker.
+ * @author Evans
+ */
+public class BoundaryPreview {
+    private final LatestWinsWorker<Request, ArrayList<ArrayList<Vector3f>>> worker;
+    //snapshot handed to the worker, reused by every request until the tree it was taken from changes
+    private PopUpBookTree snapshot;
+    private PopUpBookTree snapshotSource;
+    private int snapshotVersion;
+
+    /**
+     * Gets the safety areas worked out by the preview
+     */
+    public interface Listener {
+
+        /**
+         * Called on the render thread with the safety area of the latest request
+         * @param results pair of vertices list representing the maximum area of patch A and patch B,
+         * null if the patches leave the page. See PopUpBookTree.getBoundarys
+         */
+        void boundarysReady(ArrayList<ArrayList<Vector3f>> results);
+    }
+
+    /**
+     * Constructor for the BoundaryPreview
+     * @param app the application to hand the results back to
+     * @param listener listener getting the results
+     */
+    public BoundaryPreview(Application app, final Listener listener) {
+        worker = new LatestWinsWorker<>(app, "BoundaryPreview",
+                new LatestWinsWorker.Task<Request, ArrayList<ArrayList<Vector3f>>>() {
+                    @Override
+                    public ArrayList<ArrayList<Vector3f>> compute(Request request) {
+                        Vector3f[] points = request.points;
+                        return request.snapshot.getBoundarys(request.parentA, request.parentB,
+                                points[0], points[1], points[2], points[3], points[4], points[5], points[6], points[7], request.type);
+                    }
+                },
+                new LatestWinsWorker.Listener<ArrayList<ArrayList<Vector3f>>>() {
+                    @Override
+                    public void resultReady(ArrayList<ArrayList<Vector3f>> results) {
+                        listener.boundarysReady(results);
+                    }
+                });
+    }
+
+    /**
+     * Asks for the safety area of a joint. Has to be called on the render thread, since a snapshot of the tree is taken.
+     * The snapshot is only taken again when patches or joints were added or removed since the last request,
+     * so dragging points does not copy the tree on every move. The worker folds its own snapshot of it for each request,
+     * see PopUpBookTree.getBoundarys, so the one snapshot is only ever used by the worker thread.
+     * See PopUpBookTree.getBoundarys for the parameters, the points are copied so they can be changed after.
+     * @param tree the tree the joint is built in
+     * @param parentA parent A
+     * @param parentB parent B
+     * @param axisA1 joint point 1 between patch A and parent A
+     * @param axisA2 joint point 2 between patch A and parent A
+     * @param axisB1 joint point 1 between patch B and parent B
+     * @param axisB2 joint point 2 between patch B and parent B
+     * @param jointA1 joint point 1 between patch A and patch B on patch A
+     * @param jointA2 joint point 2 between patch A and patch B on patch A
+     * @param jointB1 joint point 1 between patch A and patch B on patch B
+     * @param jointB2 joint point 2 between patch A and patch B on patch B
+     * @param type type of joint
+     */
+    public void request(PopUpBookTree tree, PopUpBookTree.PatchNode parentA, PopUpBookTree.PatchNode parentB,
+            Vector3f axisA1, Vector3f axisA2, Vector3f axisB1, Vector3f axisB2,
+            Vector3f jointA1, Vector3f jointA2, Vector3f jointB1, Vector3f jointB2, String type) {
+        if (snapshotSource != tree || snapshotVersion != tree.getStructureVersion()) {
+            snapshot = tree.snapshot();
+            snapshotSource = tree;
+            snapshotVersion = tree.getStructureVersion();
+        }
+        worker.request(new Request(snapshot, parentA, parentB,
+                new Vector3f[]{axisA1.clone(), axisA2.clone(), axisB1.clone(), axisB2.clone(),
+                    jointA1.clone(), jointA2.clone(), jointB1.clone(), jointB2.clone()}, type));
+    }
+
+    /**
+     * Drops all requests made so far, so no more results are handed to the listener until the next request
+     */
+    public void cancel() {
+        worker.cancel();
+    }
+
+    /**
+     * Checks if the result of the latest request has not been handed to the listener yet.
+     * Has to be called on the render thread.
+     * @return true while a request is being worked on
+     */
+    public boolean isPending() {
+        return worker.isPending();
+    }
+
+    /**
+     * Cancels the requests and stops the worker thread
+     */
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    /**
+     * A request for the safety area of a joint, with a snapshot of the tree at the time of the request
+     */
+    private static class Request {
+        private final PopUpBookTree snapshot;
+        private final PopUpBookTree.PatchNode parentA;
+        private final PopUpBookTree.PatchNode parentB;
+        private final Vector3f[] points;
+        private final String type;
+
+        /**
+         * Constructor of the Request Class
+         * @param snapshot snapshot of the tree
+         * @param parentA parent A in the tree the snapshot was taken from
+         * @param parentB parent B in the tree the snapshot was taken from
+         * @param points the axis and joint points, in the order getBoundarys takes them
+         * @param type type of joint
+         */
+        private Request(PopUpBookTree snapshot, PopUpBookTree.PatchNode parentA, PopUpBookTree.PatchNode parentB,
+                Vector3f[] points, String type) {
+            this.snapshot = snapshot;
+            this.parentA = parentA;
+            this.parentB = parentB;
+            this.points = points;
+            this.type = type;
+        }
+    }
+}
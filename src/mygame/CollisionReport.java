@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The collisions found in one pose of a design. A report never changes once it is made and does not point into
+ * the tree, the patches are given by their ids, see PopUpBookTree.getPatch, so it can be kept, compared and
+ * handed to other threads. Showing it is left to the caller.
+ * @author Evans
+ */
+public final class CollisionReport {
+    private final float percent;
+    private final List<Pair> pairs;
+
+    /**
+     * A pair of patches that collide
+     */
+    public static final class Pair {
+        private final int idA;
+        private final int idB;
+        private final List<Vector3f> points;
+        private final float depth;
+
+        /**
+         * Constructor of the Pair Class
+         * @param idA id of patch A
+         * @param idB id of patch B
+         * @param points points where the patches collide, copied
+         * @param depth how far the patches go through each other
+         */
+        Pair(int idA, int idB, List<Vector3f> points, float depth) {
+            this.idA = idA;
+            this.idB = idB;
+            ArrayList<Vector3f> copy = new ArrayList<>(points.size());
+            for (Vector3f point : points) {
+                copy.add(point.clone());
+            }
+            this.points = Collections.unmodifiableList(copy);
+            this.depth = depth;
+        }
+
+        /**
+         * Gets the id of patch A
+         * @return index of the patch in the tree
+         */
+        public int getIdA() {
+            return idA;
+        }
+
+        /**
+         * Gets the id of patch B
+         * @return index of the patch in the tree
+         */
+        public int getIdB() {
+            return idB;
+        }
+
+        /**
+         * Gets the points where the patches collide
+         * @return copies of the points
+         */
+        public ArrayList<Vector3f> getPoints() {
+            ArrayList<Vector3f> copy = new ArrayList<>(points.size());
+            for (Vector3f point : points) {
+                copy.add(point.clone());
+            }
+            return copy;
+        }
+
+        /**
+         * Gets how far the patches go through each other, which is how far the one going through the other less
+         * would have to be pushed along the normal of the other patch to be on one side of it
+         * @return penetration depth
+         */
+        public float getDepth() {
+            return depth;
+        }
+    }
+
+    /**
+     * Constructor of the CollisionReport Class
+     * @param percent fold percentage of the pose, solved or interpolated
+     * @param pairs pairs of patches that collide
+     */
+    CollisionReport(float percent, List<Pair> pairs) {
+        this.percent = percent;
+        this.pairs = Collections.unmodifiableList(new ArrayList<>(pairs));
+    }
+
+    /**
+     * Gets the fold percentage of the pose the report is for
+     * @return fold percentage
+     */
+    public float getPercent() {
+        return percent;
+    }
+
+    /**
+     * Checks if nothing collides
+     * @return true if no patches collide
+     */
+    public boolean isEmpty() {
+        return pairs.isEmpty();
+    }
+
+    /**
+     * Gets the pairs of patches that collide
+     * @return the pairs, not to be changed
+     */
+    public List<Pair> getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Gets all points of collision
+     * @return the points of every pair, null if nothing collides
+     */
+    public ArrayList<Vector3f> getPoints() {
+        if (pairs.isEmpty()) {
+            return null;
+        }
+        ArrayList<Vector3f> points = new ArrayList<>();
+        for (Pair pair : pairs) {
+            for (Vector3f point : pair.points) {
+                points.add(point.clone());
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Gets the deepest penetration of all pairs
+     * @return the largest depth, 0 if nothing collides
+     */
+    public float getMaxDepth() {
+        float max = 0f;
+        for (Pair pair : pairs) {
+            max = Math.max(max, pair.depth);
+        }
+        return max;
+    }
+}
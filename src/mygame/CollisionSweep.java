@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.app.Application;
+
+/**
+ * Works out the collision timeline of a design on a background thread, so a design can be checked from open to closed
+ * without anyone folding it by hand. Only the latest request is worked on and handed to the listener,
+ * on the render thread, see LatestWinsWorker.
+ * @author Evans
+ */
+public class CollisionSweep {
+    private final LatestWinsWorker<PopUpBookTree, CollisionTimeline> worker;
+
+    /**
+     * Gets the timelines worked out by the sweep
+     */
+    public interface Listener {
+
+        /**
+         * Called on the render thread with the timeline of the latest request
+         * @param timeline ranges of fold percentages with collisions, see PopUpBookTree.getCollisionTimeline
+         */
+        void timelineReady(CollisionTimeline timeline);
+    }
+
+    /**
+     * Constructor for the CollisionSweep
+     * @param app the application to hand the results back to
+     * @param listener listener getting the results
+     */
+    public CollisionSweep(Application app, final Listener listener) {
+        worker = new LatestWinsWorker<>(app, "CollisionSweep",
+                new LatestWinsWorker.Task<PopUpBookTree, CollisionTimeline>() {
+                    @Override
+                    public CollisionTimeline compute(PopUpBookTree snapshot) {
+                        return snapshot.getCollisionTimeline();
+                    }
+                },
+                new LatestWinsWorker.Listener<CollisionTimeline>() {
+                    @Override
+                    public void resultReady(CollisionTimeline timeline) {
+                        listener.timelineReady(timeline);
+                    }
+                });
+    }
+
+    /**
+     * Asks for the collision timeline of a design. Has to be called on the render thread, since a snapshot of the tree is taken.
+     * @param tree the tree of the design
+     */
+    public void request(PopUpBookTree tree) {
+        worker.request(tree.snapshot());
+    }
+
+    /**
+     * Drops all requests made so far, so no more results are handed to the listener until the next request
+     */
+    public void cancel() {
+        worker.cancel();
+    }
+
+    /**
+     * Cancels the requests and stops the worker thread
+     */
+    public void shutdown() {
+        worker.shutdown();
+    }
+}
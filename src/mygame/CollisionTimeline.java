@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The fold percentages at which patches of a design collide while the book is folded from open to closed,
+ * see PopUpBookTree.getCollisionTimeline. Like a report it never changes once it is made and gives the patches by their ids.
+ * @author Evans
+ */
+public final class CollisionTimeline {
+    private final List<Interval> intervals;
+
+    /**
+     * A range of fold percentages in which patches collide the whole way
+     */
+    public static final class Interval {
+        private final float from;
+        private final float to;
+        private final int[] ids;
+        private final CollisionReport deepest;
+
+        /**
+         * Constructor of the Interval Class
+         * @param from first percentage with a collision
+         * @param to last percentage with a collision
+         * @param ids ids of the patches that collide somewhere in the range, sorted
+         * @param deepest report of the percentage with the deepest collision
+         */
+        Interval(float from, float to, int[] ids, CollisionReport deepest) {
+            this.from = from;
+            this.to = to;
+            this.ids = ids.clone();
+            this.deepest = deepest;
+        }
+
+        /**
+         * Gets the first percentage with a collision
+         * @return start of the range
+         */
+        public float getFrom() {
+            return from;
+        }
+
+        /**
+         * Gets the last percentage with a collision
+         * @return end of the range
+         */
+        public float getTo() {
+            return to;
+        }
+
+        /**
+         * Gets the patches that collide somewhere in the range
+         * @return ids of the patches, sorted
+         */
+        public int[] getIds() {
+            return ids.clone();
+        }
+
+        /**
+         * Gets the report of the percentage in the range where the patches go through each other the most,
+         * out of the percentages the sweep stopped at
+         * @return the report
+         */
+        public CollisionReport getDeepest() {
+            return deepest;
+        }
+
+        /**
+         * Checks if a percentage is in the range
+         * @param percent percentage of fold
+         * @return true if the patches collide at the percentage
+         */
+        public boolean contains(float percent) {
+            return percent >= from && percent <= to;
+        }
+    }
+
+    /**
+     * Constructor of the CollisionTimeline Class
+     * @param intervals ranges with collisions, in order
+     */
+    CollisionTimeline(List<Interval> intervals) {
+        this.intervals = Collections.unmodifiableList(new ArrayList<>(intervals));
+    }
+
+    /**
+     * Checks if the design folds all the way without any collision
+     * @return true if nothing collides
+     */
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    /**
+     * Gets the ranges of fold percentages with collisions
+     * @return the ranges in order, not to be changed
+     */
+    public List<Interval> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Gets the first fold percentage where patches collide
+     * @return the percentage, -1 if nothing collides
+     */
+    public float getFirstContact() {
+        return intervals.isEmpty() ? -1f : intervals.get(0).from;
+    }
+
+    /**
+     * Checks if patches collide at a fold percentage
+     * @param percent percentage of fold
+     * @return true if the percentage is in one of the ranges
+     */
+    public boolean isColliding(float percent) {
+        for (Interval interval : intervals) {
+            if (interval.contains(percent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        if (intervals.isEmpty()) {
+            return "No collisions";
+        }
+        StringBuilder text = new StringBuilder("Collides at");
+        for (int i = 0; i < intervals.size(); i++) {
+            Interval interval = intervals.get(i);
+            text.append(i == 0 ? " " : ", ").append((int) (interval.from * 100)).append('%');
+            if ((int) (interval.to * 100) != (int) (interval.from * 100)) {
+                text.append(" - ").append((int) (interval.to * 100)).append('%');
+            }
+        }
+        return text.toString();
+    }
+}
@@ -86,6 +86,8 @@ public class D1CreationState extends BaseAppState {
     private ArrayList<Vector3f> boundaryB;
     private Geometry boundaryAGeom;
     private Geometry boundaryBGeom;
+    //works out the safety boundary on a background thread while points are dragged
+    private BoundaryPreview preview;
     
     //Variable for clicking using collision plane and ray
     private Vector3f referencePoint;
@@ -183,8 +185,8 @@ public class D1CreationState extends BaseAppState {
                                 if (current - angle != 0.0f) {
                                     Vector3f rotationVectorA = verticesA.get(0).subtract(verticesA.get(1)).cross(deltaAxis);
                                     Vector3f rotationVectorB = verticesB.get(0).subtract(verticesB.get(1)).cross(deltaAxis);
-                                    verticesA.get(0).set(Util.rotatePoint(verticesA.get(0), verticesA.get(1).add(rotationVectorA), verticesA.get(1), current - angle));
-                                    verticesB.get(0).set(Util.rotatePoint(verticesB.get(0), verticesB.get(1).add(rotationVectorB), verticesB.get(1), current - angle));
+                                    Util.rotatePoint(verticesA.get(0), verticesA.get(1).add(rotationVectorA), verticesA.get(1), current - angle, verticesA.get(0));
+                                    Util.rotatePoint(verticesB.get(0), verticesB.get(1).add(rotationVectorB), verticesB.get(1), current - angle, verticesB.get(0));
                                     Plane plane = new Plane();
                                     plane.setPlanePoints(verticesA.get(0), verticesA.get(1), verticesA.get(2));
                                     for (Vector3f point : verticesA) {
@@ -254,12 +256,12 @@ public class D1CreationState extends BaseAppState {
                                 Vector3f rotationNormal = deltaAxis.cross(verticesA.get(2).subtract(verticesA.get(1)).normalize());
                                 Float currentAngle = angleConstant + angleConstant * Math.round((verticesA.get(2).subtract(verticesA.get(1)).normalize().angleBetween(deltaAxis.normalize()) - angleConstant) / angleConstant);
                                 if (FastMath.abs(currentAngle - targetAngle) > FastMath.FLT_EPSILON) {
-                                    verticesA.get(2).set(Util.rotatePoint(verticesA.get(2), verticesA.get(1), verticesA.get(1).add(rotationNormal), currentAngle - targetAngle));
+                                    Util.rotatePoint(verticesA.get(2), verticesA.get(1), verticesA.get(1).add(rotationNormal), currentAngle - targetAngle, verticesA.get(2));
                                     updateBoundaries();
                                 }
                             }
 
-                            verticesA.get(2).set(Util.closestPointOnLine(verticesA.get(1), verticesA.get(2).subtract(verticesA.get(1)).normalize(), newPoint));
+                            Util.closestPointOnLine(verticesA.get(1), verticesA.get(2).subtract(verticesA.get(1)).normalize(), newPoint, verticesA.get(2));
                             Plane plane = new Plane();
                             plane.setPlanePoints(verticesA.get(0), verticesA.get(1), verticesA.get(2));
                             for (Vector3f point : verticesA) {
@@ -324,6 +326,18 @@ public class D1CreationState extends BaseAppState {
         }
     }
     
+    /**
+     * Listener for the safety boundary worked out while points are dragged
+     */
+    private class D1PreviewListener implements BoundaryPreview.Listener {
+        @Override
+        public void boundarysReady(ArrayList<ArrayList<Vector3f>> results) {
+            showBoundaries(results);
+            fitInBoundaries();
+            updateGraphics();
+        }
+    }
+    
     /**
      * ActionListener for key's and clicks 
      */
@@ -334,6 +348,10 @@ public class D1CreationState extends BaseAppState {
             switch (action) {
                 case D1_CONFIRM: {
                     if (isPressed) {
+                        if (preview.isPending()) {
+                            //the points were not fit in the latest safety area yet
+                            settleBoundaries();
+                        }
                         Vector3f[] boundaryA = verticesA.toArray(new Vector3f[verticesA.size()]);
                         Vector3f[] boundaryB = verticesB.toArray(new Vector3f[verticesB.size()]);
 
@@ -367,7 +385,7 @@ public class D1CreationState extends BaseAppState {
                 case D1_ESCAPE: {
                     if (isPressed) {
                         for (Geometry plane : app.selected) {
-                            plane.setMaterial(app.paper);
+                            app.popUpBook.setMarked(plane, false);
                         }
                         app.selected.clear();
                         setEnabled(false);
@@ -570,11 +588,13 @@ public class D1CreationState extends BaseAppState {
         dotMaterial.setColor("Color", ColorRGBA.Red);
         lineMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
         lineMaterial.setColor("Color", ColorRGBA.Black);
+        preview = new BoundaryPreview(app, new D1PreviewListener());
 
     }
 
     @Override
     protected void cleanup(Application app) {
+        preview.shutdown();
     }
 
     /**
@@ -656,9 +676,17 @@ public class D1CreationState extends BaseAppState {
         verticesA = new ArrayList<>();
         verticesB = new ArrayList<>();
         verticesA.add(endPoint.add(axisTranslationA));
+        Vector3f[] predicted = null;
         if (tShape) {
-            if (endPoint.add(axisTranslationB).distance(verticesA.get(0)) < app.popUpBook.predictWhenFold(geometryA, verticesA.get(0), 0.5f).distance(app.popUpBook.predictWhenFold(geometryB, endPoint.add(axisTranslationB), 0.5f))) {
+            //where the ends go half folded and when the fold starts, for both sides patch B can go to, in one batch
+            Vector3f endB = endPoint.add(axisTranslationB);
+            predicted = app.popUpBook.predictWhenFold(
+                    new Geometry[]{geometryA, geometryB, geometryA, geometryB, geometryB},
+                    new Vector3f[]{verticesA.get(0), endB, verticesA.get(0), endB, endPoint.subtract(axisTranslationB)},
+                    new float[]{0.5f, 0.5f, 0.01f, 0.01f, 0.01f});
+            if (endB.distance(verticesA.get(0)) < predicted[0].distance(predicted[1])) {
                 axisTranslationB.negateLocal();
+                predicted[3] = predicted[4];
             }
         }
 
@@ -669,7 +697,7 @@ public class D1CreationState extends BaseAppState {
 
         Vector3f up = verticesA.get(0).subtract(verticesA.get(1)).cross(verticesB.get(0).subtract(verticesB.get(1))).normalize().mult(deltaAxis.length() / 1.61f);
         if (tShape) {
-            Vector3f testPoint = app.popUpBook.predictWhenFold(geometryA, verticesA.get(0), 0.01f).add(app.popUpBook.predictWhenFold(geometryB, verticesB.get(0), 0.01f)).divide(2);
+            Vector3f testPoint = predicted[2].add(predicted[3]).divide(2);
             if (endPoint.add(up).distance(testPoint) > endPoint.add(up.negate()).distance(testPoint)) {
                 up.negateLocal();
             }
@@ -681,8 +709,7 @@ public class D1CreationState extends BaseAppState {
 
         verticesA.add(up.add(center).clone());
         verticesB.add(verticesA.get(2));
-        updateBoundaries();
-        fitInBoundaries();
+        settleBoundaries();
         addDot(verticesA.get(1));
         addDot(verticesA.get(0));
         addDot(verticesA.get(2));
@@ -697,9 +724,13 @@ public class D1CreationState extends BaseAppState {
     }
 
     /**
-     * fit all vertices in the safety area
+     * fit all vertices in the safety area. Does nothing while the preview works out a new safety area,
+     * the points are fit in that one when it arrives
      */
     private void fitInBoundaries() {
+        if (preview.isPending()) {
+            return;
+        }
         if (!boundaryA.isEmpty()) {
             float length = verticesA.get(0).distance(verticesA.get(1));
             if (length > boundaryA.get(1).distance(boundaryA.get(0))) {
@@ -866,14 +897,35 @@ public class D1CreationState extends BaseAppState {
     }
 
     /**
-     * updates the safety area
+     * Asks for the safety boundary of the current points. It is shown when the preview has worked it out,
+     * and the points are fit in it then
      */
     private void updateBoundaries() {
-        ArrayList<ArrayList<Vector3f>> results = app.popUpBook.getBoundarys(geometryA, geometryB,
+        preview.request(app.popUpBook.getTree(),
+                app.popUpBook.geomPatchMap.get(geometryA), app.popUpBook.geomPatchMap.get(geometryB),
                 verticesA.get(0), verticesA.get(1), verticesB.get(0), verticesB.get(1),
                 verticesA.get(2), verticesA.get(1), verticesB.get(2), verticesB.get(1),
                 "D1Joint");
+    }
+
+    /**
+     * Works out the safety boundary of the current points right away, dropping the requests the preview is working on,
+     * and fits the points in it
+     */
+    private void settleBoundaries() {
+        preview.cancel();
+        showBoundaries(app.popUpBook.getBoundarys(geometryA, geometryB,
+                verticesA.get(0), verticesA.get(1), verticesB.get(0), verticesB.get(1),
+                verticesA.get(2), verticesA.get(1), verticesB.get(2), verticesB.get(1),
+                "D1Joint"));
+        fitInBoundaries();
+    }
 
+    /**
+     * Shows the safety boundary
+     * @param results pair of vertices list of the safety boundary of patch A and patch B, null to keep the last one
+     */
+    private void showBoundaries(ArrayList<ArrayList<Vector3f>> results) {
         if (results != null) {
             boundaryA = results.get(0);
             boundaryB = results.get(1);
@@ -962,6 +1014,7 @@ public class D1CreationState extends BaseAppState {
      */
     @Override
     protected void onDisable() {
+        preview.cancel();
         inputManager.removeListener(d1BasicInput);
         app.getRootNode().detachChild(tempNode);
     }
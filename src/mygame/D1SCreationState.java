@@ -97,6 +97,8 @@ public class D1SCreationState extends BaseAppState {
     private ArrayList<Vector3f> boundaryB;
     private Geometry boundaryAGeom;
     private Geometry boundaryBGeom;
+    //works out the safety boundary on a background thread while points are dragged
+    private BoundaryPreview preview;
     
     //inputNames and inputListeners
     private final String D1S_ESCAPE = "D1S_Escape";
@@ -230,7 +232,7 @@ public class D1SCreationState extends BaseAppState {
                             float angle = newPoint.subtract(midA).normalize().angleBetween(midB.subtract(midA).normalize());
                             newPoint = midA.add(midB.subtract(midA).normalize().mult(FastMath.cos(angle) * newPoint.distance(midA)));
                             Vector3f translation = newPoint.subtract(referencePoint);
-                            if (Util.inBoundary(verticesA.get(0).add(translation), patchA.boundary)) {
+                            if (patchA.getFrame().contains(verticesA.get(0).add(translation))) {
                                 for (Vector3f point : verticesA) {
                                     if (!point.equals(verticesA.get(2))) {
                                         point.addLocal(translation);
@@ -259,6 +261,18 @@ public class D1SCreationState extends BaseAppState {
 
     }
 
+    /**
+     * Listener for the safety boundary worked out while points are dragged
+     */
+    private class D1SPreviewListener implements BoundaryPreview.Listener {
+        @Override
+        public void boundarysReady(ArrayList<ArrayList<Vector3f>> results) {
+            showBoundaries(results);
+            fitInBoundaries();
+            updateGraphics();
+        }
+    }
+
     /**
      * ActionListener for key's and clicks 
      */
@@ -269,11 +283,15 @@ public class D1SCreationState extends BaseAppState {
             switch (action) {
                 case D1S_CONFIRM: {
                     if (isPressed) {
+                        if (preview.isPending()) {
+                            //the points were not fit in the latest safety area yet
+                            settleBoundaries();
+                        }
                         Vector3f[] boundaryA = verticesA.toArray(new Vector3f[verticesA.size()]);
                         Vector3f[] boundaryB = verticesB.toArray(new Vector3f[verticesB.size()]);
 
-                        PopUpBookTree.PatchNode newPatchA = app.popUpBook.addPatch(patchA.geometry, boundaryA, new Vector3f[]{verticesA.get(0).clone(), verticesA.get(1).clone()});
-                        PopUpBookTree.PatchNode newPatchB = app.popUpBook.addPatch(patchB.geometry, boundaryB, new Vector3f[]{verticesB.get(0).clone(), verticesB.get(1).clone()});
+                        PopUpBookTree.PatchNode newPatchA = app.popUpBook.addPatch(app.popUpBook.getGeometry(patchA), boundaryA, new Vector3f[]{verticesA.get(0).clone(), verticesA.get(1).clone()});
+                        PopUpBookTree.PatchNode newPatchB = app.popUpBook.addPatch(app.popUpBook.getGeometry(patchB), boundaryB, new Vector3f[]{verticesB.get(0).clone(), verticesB.get(1).clone()});
                         app.popUpBook.addJoint(newPatchA, newPatchB, new Vector3f[]{verticesA.get(2), verticesA.get(1)}, "D1Joint");
 
                         app.getStateManager().getState(ExplorationState.class).setEnabled(true);
@@ -294,7 +312,7 @@ public class D1SCreationState extends BaseAppState {
                 case D1S_ESCAPE: {
                     if (isPressed) {
                         for (Geometry plane : app.selected) {
-                            plane.setMaterial(app.paper);
+                            app.popUpBook.setMarked(plane, false);
                         }
                         app.selected.clear();
                         setEnabled(false);
@@ -505,11 +523,13 @@ public class D1SCreationState extends BaseAppState {
         dotMaterial.setColor("Color", ColorRGBA.Red);
         lineMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
         lineMaterial.setColor("Color", ColorRGBA.Black);
+        preview = new BoundaryPreview(app, new D1SPreviewListener());
 
     }
 
     @Override
     protected void cleanup(Application app) {
+        preview.shutdown();
     }
 
     /**
@@ -569,11 +589,11 @@ public class D1SCreationState extends BaseAppState {
         outerLoop:
         for (PopUpBookTree.PatchNode aPatch : aParents) {
             for (PopUpBookTree.PatchNode bPatch : bParents) {
-                if (app.popUpBook.isNeighbor(aPatch.geometry, bPatch.geometry)) {
+                if (app.popUpBook.getTree().isNeighbor(aPatch, bPatch)) {
                     found = true;
                     basePatchA = aPatch;
                     basePatchB = bPatch;
-                    axisPoints = app.popUpBook.axisBetween(aPatch.geometry, bPatch.geometry);
+                    axisPoints = app.popUpBook.getTree().axisBetween(aPatch, bPatch);
                     centerAxis = axisPoints[0].subtract(axisPoints[1]);
                     break outerLoop;
                 }
@@ -713,8 +733,7 @@ public class D1SCreationState extends BaseAppState {
                     addLine(verticesB.get(1), verticesB.get(2));
                     addLine(verticesB.get(2), verticesB.get(0));
                     addLine(verticesB.get(1), verticesB.get(0));
-                    updateBoundaries();
-                    fitInBoundaries();
+                    settleBoundaries();
 
                 } else {
                     //fail
@@ -739,9 +758,13 @@ public class D1SCreationState extends BaseAppState {
     }
 
     /**
-     * fit all vertices within the safty boundary
+     * fit all vertices within the safty boundary. Does nothing while the preview works out a new safety boundary,
+     * the points are fit in that one when it arrives
      */
     private void fitInBoundaries() {
+        if (preview.isPending()) {
+            return;
+        }
         if (!boundaryA.isEmpty()) {
             float length = verticesA.get(0).distance(verticesA.get(1));
             if (length > boundaryA.get(1).distance(boundaryA.get(0))) {
@@ -873,14 +896,34 @@ public class D1SCreationState extends BaseAppState {
 
 
     /**
-     * updates the safety area
+     * Asks for the safety boundary of the current points. It is shown when the preview has worked it out,
+     * and the points are fit in it then
      */
     private void updateBoundaries() {
-        ArrayList<ArrayList<Vector3f>> results = app.popUpBook.getBoundarys(patchA.geometry, patchB.geometry,
+        preview.request(app.popUpBook.getTree(), patchA, patchB,
                 verticesA.get(0), verticesA.get(1), verticesB.get(0), verticesB.get(1),
                 verticesA.get(2), verticesA.get(1), verticesA.get(2), verticesA.get(1),
                 "D1Joint");
+    }
 
+    /**
+     * Works out the safety boundary of the current points right away, dropping the requests the preview is working on,
+     * and fits the points in it
+     */
+    private void settleBoundaries() {
+        preview.cancel();
+        showBoundaries(app.popUpBook.getTree().getBoundarys(patchA, patchB,
+                verticesA.get(0), verticesA.get(1), verticesB.get(0), verticesB.get(1),
+                verticesA.get(2), verticesA.get(1), verticesA.get(2), verticesA.get(1),
+                "D1Joint"));
+        fitInBoundaries();
+    }
+
+    /**
+     * Shows the safety boundary
+     * @param results pair of vertices list of the safety boundary of patch A and patch B, null to keep the last one
+     */
+    private void showBoundaries(ArrayList<ArrayList<Vector3f>> results) {
         if (results != null) {
             boundaryA = results.get(0);
             boundaryB = results.get(1);
@@ -954,6 +997,7 @@ public class D1SCreationState extends BaseAppState {
      */
     @Override
     protected void onDisable() {
+        preview.cancel();
         inputManager.removeListener(d1SBasicInput);
         app.getRootNode().detachChild(tempNode);
     }
@@ -98,6 +98,12 @@ public class D2CreationState extends BaseAppState {
     private ArrayList<Vector3f> boundaryB;
     private Geometry boundaryAGeom;
     private Geometry boundaryBGeom;
+    //works out the safety boundary on a background thread while points are dragged
+    private BoundaryPreview preview;
+    //side being checked by the preview, "shiftA" or "shiftB", null when the points are not dragged by side
+    private String previewSide;
+    //last points that were fit in the safety boundary, a dragged side goes back to them if it leaves the boundary
+    private ArrayList<ArrayList<Vector3f>> acceptedState;
     
     //Visualising Alignment
     private Geometry mark;
@@ -151,11 +157,12 @@ public class D2CreationState extends BaseAppState {
                                 }
                             }
                             if (Util.isBetween(boundaryA.get(2), verticesA.get(2), boundaryA.get(3)) && Util.isBetween(boundaryA.get(2), verticesA.get(3), boundaryA.get(3))
-                                    && (Util.inBoundary(verticesA.get(0), patchA.boundary) || Util.inBoundary(verticesA.get(1), patchA.boundary))
-                                    && (Util.inBoundary(verticesB.get(0), patchB.boundary) || Util.inBoundary(verticesB.get(1), patchB.boundary))) {
+                                    && (patchA.getFrame().contains(verticesA.get(0)) || patchA.getFrame().contains(verticesA.get(1)))
+                                    && (patchB.getFrame().contains(verticesB.get(0)) || patchB.getFrame().contains(verticesB.get(1)))) {
 
                                 fitInBoundaries();
                                 referencePoint.addLocal(translation);
+                                acceptedState = copyCurrentState();
                                 updateGraphics();
 
                             } else {
@@ -173,19 +180,17 @@ public class D2CreationState extends BaseAppState {
                         collisionNode.collideWith(ray, results);
                         if (results.size() > 0) {
                             ArrayList<ArrayList<Vector3f>> preTransState = copyCurrentState();
-                            for (Geometry geom : app.popUpBook.geomPatchMap.keySet()) {
-                                geom.setMaterial(app.paper);
-                            }
+                            app.popUpBook.clearMarks();
                             Vector3f newPoint = results.getClosestCollision().getContactPoint();
                             if (autoLock) {
                                 tempNode.attachChild(mark);
                                 results.clear();
-                                app.patches.collideWith(ray, results);
-                                if (results.size() > 0) {
+                                Geometry collideGeometry = app.popUpBook.pick(ray, results);
+                                if (collideGeometry != null) {
                                     Vector3f contactPoint = results.getClosestCollision().getContactPoint();
-                                    PopUpBookTree.PatchNode collidePatch = app.popUpBook.geomPatchMap.get(results.getClosestCollision().getGeometry());
+                                    PopUpBookTree.PatchNode collidePatch = app.popUpBook.geomPatchMap.get(collideGeometry);
                                     if (collidePatch.getNormal().cross(patchA.getNormal()).distance(Vector3f.ZERO) > FastMath.FLT_EPSILON && !collidePatch.equals(patchB)) {
-                                        collidePatch.geometry.setMaterial(app.markPaper);
+                                        app.popUpBook.setMarked(collideGeometry, true);
                                         Vector3f closest = collidePatch.boundary[0];
                                         for (int i = 1; i < collidePatch.boundary.length; i++) {
                                             if (collidePatch.boundary[i].distance(contactPoint) < closest.distance(contactPoint)) {
@@ -200,7 +205,7 @@ public class D2CreationState extends BaseAppState {
                             } else {
                                 mark.removeFromParent();
                             }
-                            Vector3f translation = Util.closestPointOnLine(referencePoint, axisTranslationA, newPoint).subtract(referencePoint);
+                            Vector3f translation = Util.closestPointOnLine(referencePoint, axisTranslationA, newPoint, new Vector3f()).subtractLocal(referencePoint);
 
                             for (Vector3f point : verticesA) {
                                 point.addLocal(translation);
@@ -212,45 +217,11 @@ public class D2CreationState extends BaseAppState {
                                     verticesA.get(i).set(preTransState.get(0).get(i));
                                 }
                             } else {
-                                updateBoundaries();
-                                if (boundaryA == null || boundaryA.get(3).distance(boundaryA.get(2)) < 0.5f) {
-                                    System.out.println("bad boundary");
-                                    for (int i = 0; i < verticesA.size(); i++) {
-                                        verticesA.get(i).set(preTransState.get(0).get(i));
-                                    }
-
-                                } else {
-                                    if (Util.lineTouchesBoundary(verticesA.get(0), deltaAxis, patchA.boundary)) {
-                                        //Still OK tall
-                                        fitInBoundaries();
-                                        referencePoint.addLocal(translation);
-                                    } else {
-                                        //Too tall
-                                        Vector3f tallestPoint = Util.closestPointToDirection(axisTranslationA, patchA.boundary);
-                                        Vector3f adjustTranslation = Util.lineIntersection(tallestPoint, tallestPoint.add(axisTranslationA.mult(100f)), verticesA.get(0).add(deltaAxis.mult(100f)), verticesA.get(1).add(deltaAxis.negate().mult(100f)));
-                                        if (adjustTranslation != null) {
-                                            adjustTranslation.set(tallestPoint.subtract(adjustTranslation));
-                                            for (Vector3f point : verticesA) {
-                                                point.addLocal(adjustTranslation);
-                                            }
-                                            if (!Util.lineTouchesBoundary(verticesA.get(0), deltaAxis, patchA.boundary)) {
-                                                for (int i = 0; i < verticesA.size(); i++) {
-                                                    verticesA.get(i).set(preTransState.get(0).get(i));
-                                                }
-                                            } else {
-                                                referencePoint.addLocal(adjustTranslation);
-                                                referencePoint.addLocal(translation);
-                                            }
-                                        } else {
-                                            for (int i = 0; i < verticesA.size(); i++) {
-                                                verticesA.get(i).set(preTransState.get(0).get(i));
-                                            }
-                                        }
-
-                                    }
-
-                                }
-                                updateBoundaries();
+                                //the points are checked against the safety area of the new position when the preview
+                                //has worked it out, and go back to where they last fit if they leave it
+                                referencePoint.addLocal(translation);
+                                previewSide = dragMode;
+                                requestBoundaries();
                                 updateGraphics();
                             }
 
@@ -261,19 +232,16 @@ public class D2CreationState extends BaseAppState {
                         collisionNode.collideWith(ray, results);
                         if (results.size() > 0) {
                             ArrayList<ArrayList<Vector3f>> preTransState = copyCurrentState();
-                            for (Geometry geom : app.popUpBook.geomPatchMap.keySet()) {
-                                geom.setMaterial(app.paper);
-                            }
+                            app.popUpBook.clearMarks();
                             Vector3f newPoint = results.getClosestCollision().getContactPoint();
                             if (autoLock) {
                                 results.clear();
-                                app.patches.collideWith(ray, results);
-                                if (results.size() > 0) {
-                                    
+                                Geometry collideGeometry = app.popUpBook.pick(ray, results);
+                                if (collideGeometry != null) {
                                     Vector3f contactPoint = results.getClosestCollision().getContactPoint();
-                                    PopUpBookTree.PatchNode collidePatch = app.popUpBook.geomPatchMap.get(results.getClosestCollision().getGeometry());
+                                    PopUpBookTree.PatchNode collidePatch = app.popUpBook.geomPatchMap.get(collideGeometry);
                                     if (collidePatch.getNormal().cross(patchB.getNormal()).distance(Vector3f.ZERO) > FastMath.FLT_EPSILON && !collidePatch.equals(patchA)) {
-                                        collidePatch.geometry.setMaterial(app.markPaper);
+                                        app.popUpBook.setMarked(collideGeometry, true);
                                         Vector3f closest = collidePatch.boundary[0];
                                         for (int i = 1; i < collidePatch.boundary.length; i++) {
                                             if (collidePatch.boundary[i].distance(contactPoint) < closest.distance(contactPoint)) {
@@ -288,7 +256,7 @@ public class D2CreationState extends BaseAppState {
                                 }
 
                             }
-                            Vector3f translation = Util.closestPointOnLine(referencePoint, axisTranslationB, newPoint).subtract(referencePoint);
+                            Vector3f translation = Util.closestPointOnLine(referencePoint, axisTranslationB, newPoint, new Vector3f()).subtractLocal(referencePoint);
 
                             for (Vector3f point : verticesB) {
                                 point.addLocal(translation);
@@ -300,46 +268,11 @@ public class D2CreationState extends BaseAppState {
                                     verticesB.get(i).set(preTransState.get(1).get(i));
                                 }
                             } else {
-                                updateBoundaries();
-                                if (boundaryA == null || boundaryB.get(3).distance(boundaryB.get(2)) < 0.5f) {
-                                    System.out.println("bad boundary");
-                                    for (int i = 0; i < verticesB.size(); i++) {
-                                        verticesB.get(i).set(preTransState.get(1).get(i));
-                                    }
-
-                                } else {
-                                    if (Util.lineTouchesBoundary(verticesB.get(0), deltaAxis, patchB.boundary)) {
-                                        //Still OK tall
-                                        fitInBoundaries();
-                                        referencePoint.addLocal(translation);
-                                    } else {
-                                        //Too tall
-                                        Vector3f tallestPoint = Util.closestPointToDirection(axisTranslationB, patchB.boundary);
-                                        Vector3f adjustTranslation = Util.lineIntersection(tallestPoint, tallestPoint.add(axisTranslationB.mult(100f)), verticesB.get(0).add(deltaAxis.mult(100f)), verticesB.get(1).add(deltaAxis.negate().mult(100f)));
-                                        if (adjustTranslation != null) {
-                                            adjustTranslation.set(tallestPoint.subtract(adjustTranslation));
-                                            for (Vector3f point : verticesB) {
-                                                point.addLocal(adjustTranslation);
-                                            }
-
-                                            if (!Util.lineTouchesBoundary(verticesB.get(0), deltaAxis, patchB.boundary)) {
-                                                for (int i = 0; i < verticesA.size(); i++) {
-                                                    verticesB.get(i).set(preTransState.get(0).get(i));
-                                                }
-                                            } else {
-                                                referencePoint.addLocal(adjustTranslation);
-                                                referencePoint.addLocal(translation);
-                                            }
-                                        } else {
-                                            for (int i = 0; i < verticesB.size(); i++) {
-                                                verticesB.get(i).set(preTransState.get(0).get(i));
-                                            }
-                                        }
-
-                                    }
-
-                                }
-                                updateBoundaries();
+                                //the points are checked against the safety area of the new position when the preview
+                                //has worked it out, and go back to where they last fit if they leave it
+                                referencePoint.addLocal(translation);
+                                previewSide = dragMode;
+                                requestBoundaries();
                                 updateGraphics();
                             }
 
@@ -378,14 +311,15 @@ public class D2CreationState extends BaseAppState {
                                     }
                                 }
                             }
-                            Vector3f translation = Util.closestPointOnLine(referencePoint, deltaAxis, newPoint).subtract(referencePoint);
+                            Vector3f translation = Util.closestPointOnLine(referencePoint, deltaAxis, newPoint, new Vector3f()).subtractLocal(referencePoint);
                             if (pairPoint.distance(referencePoint.add(translation)) > 0.5f) {
                                 referencePoint.addLocal(translation);
                                 fitInBoundaries();
+                                acceptedState = copyCurrentState();
                                 updateGraphics();
                             }
 
-                            app.setText("Error", "In: " + Util.inBoundary(referencePoint.add(translation), patchA.boundary) +Util.inBoundary(referencePoint.add(translation), patchB.boundary)+ " Translation" + translation);
+                            app.setText("Error", "In: " + patchA.getFrame().contains(referencePoint.add(translation)) +patchB.getFrame().contains(referencePoint.add(translation))+ " Translation" + translation);
                             
                         }
                         break;
@@ -400,6 +334,16 @@ public class D2CreationState extends BaseAppState {
         }
 
     }
+    /**
+     * Listener for the safety boundary worked out while points are dragged
+     */
+    private class D2PreviewListener implements BoundaryPreview.Listener {
+        @Override
+        public void boundarysReady(ArrayList<ArrayList<Vector3f>> results) {
+            checkBoundaries(results);
+        }
+    }
+
     /**
      * ActionListener for key's and clicks 
      */
@@ -411,7 +355,7 @@ public class D2CreationState extends BaseAppState {
                 case D2_ESCAPE: {
                     if (isPressed) {
                         for (Geometry plane : app.selected) {
-                            plane.setMaterial(app.paper);
+                            app.popUpBook.setMarked(plane, false);
                         }
                         app.selected.clear();
                         setEnabled(false);
@@ -421,6 +365,10 @@ public class D2CreationState extends BaseAppState {
                 }
                 case D2_CONFIRM: {
                     if (isPressed) {
+                        if (preview.isPending()) {
+                            //the dragged points were not checked against the latest safety area yet
+                            settleBoundaries();
+                        }
                         Vector3f[] boundaryA = verticesA.toArray(new Vector3f[verticesA.size()]);
                         Vector3f[] boundaryB = verticesB.toArray(new Vector3f[verticesB.size()]);
                         float length = verticesA.get(0).distance(verticesA.get(3)) * FastMath.cos(verticesA.get(1).subtract(verticesA.get(0)).normalize().angleBetween(verticesA.get(3).subtract(verticesA.get(0)).normalize()));
@@ -428,8 +376,8 @@ public class D2CreationState extends BaseAppState {
                         length = verticesA.get(0).distance(verticesB.get(0)) * FastMath.cos(verticesA.get(1).subtract(verticesA.get(0)).normalize().angleBetween(verticesB.get(0).subtract(verticesA.get(0)).normalize()));
                         Vector3f jointPointB = verticesB.get(0).add(verticesA.get(0).subtract(verticesA.get(1)).normalize().mult(length));
 
-                        PopUpBookTree.PatchNode newPatchA = app.popUpBook.addPatch(patchA.geometry, boundaryA, new Vector3f[]{verticesA.get(0).clone(), verticesA.get(1).clone()});
-                        PopUpBookTree.PatchNode newPatchB = app.popUpBook.addPatch(patchB.geometry, boundaryB, new Vector3f[]{jointPointB, verticesB.get(1).clone()});
+                        PopUpBookTree.PatchNode newPatchA = app.popUpBook.addPatch(app.popUpBook.getGeometry(patchA), boundaryA, new Vector3f[]{verticesA.get(0).clone(), verticesA.get(1).clone()});
+                        PopUpBookTree.PatchNode newPatchB = app.popUpBook.addPatch(app.popUpBook.getGeometry(patchB), boundaryB, new Vector3f[]{jointPointB, verticesB.get(1).clone()});
 
                         app.popUpBook.addJoint(newPatchA, newPatchB, new Vector3f[]{jointPointMid, verticesA.get(2)}, "D2Joint");
 
@@ -441,15 +389,18 @@ public class D2CreationState extends BaseAppState {
                 case D2_LOCK: {
                     autoLock = isPressed;
                     if (!autoLock) {
-                        for (Geometry geom : app.popUpBook.geomPatchMap.keySet()) {
-                            geom.setMaterial(app.paper);
-                        }
+                        app.popUpBook.clearMarks();
                         mark.removeFromParent();
                     }
                     break;
                 }
                 case D2_SELECT: {
                     if (isPressed) {
+                        if (preview.isPending()) {
+                            //the last drag is checked before the points are dragged again, so the check does not
+                            //move points the new drag has moved
+                            settleBoundaries();
+                        }
                         collisionNode.detachAllChildren();
                         CollisionResults results = new CollisionResults();
                         Vector2f click2d = inputManager.getCursorPosition().clone();
@@ -597,10 +548,12 @@ public class D2CreationState extends BaseAppState {
         Sphere sphere = new Sphere(8, 8, sphereRadius);
         mark = new Geometry("Dot", sphere);
         mark.setMaterial(dotMaterial.clone());
+        preview = new BoundaryPreview(app, new D2PreviewListener());
     }
 
     @Override
     protected void cleanup(Application app) {
+        preview.shutdown();
     }
     
     /**
@@ -653,7 +606,7 @@ public class D2CreationState extends BaseAppState {
         }
         Vector3f[] listA = patchA.boundary;
         Vector3f[] listB = patchB.boundary;
-        Vector3f[] jointPoint = app.popUpBook.axisBetween(patchA.geometry, patchB.geometry);
+        Vector3f[] jointPoint = app.popUpBook.getTree().axisBetween(patchA, patchB);
 
         Vector3f midPoint = jointPoint[0].add(jointPoint[1]).divide(2);
         Vector3f pointA = jointPoint[0].subtract(jointPoint[0].subtract(midPoint).mult(0.3f));
@@ -715,7 +668,8 @@ public class D2CreationState extends BaseAppState {
         verticesB.add(verticesA.get(2));
         verticesB.add(verticesA.get(3));
 
-        updateBoundaries();
+        previewSide = null;
+        settleBoundaries();
         if (boundaryA == null) {
             //dun have enought space
             app.setText("Error", "Dun have enought space to build this joint");
@@ -723,7 +677,7 @@ public class D2CreationState extends BaseAppState {
             setEnabled(false);
 
         } else {
-            fitInBoundaries();
+            acceptedState = copyCurrentState();
 
             addDot(verticesA.get(1));
             addDot(verticesA.get(0));
@@ -819,13 +773,112 @@ public class D2CreationState extends BaseAppState {
     }
     
     /**
-     * updates the safety area
+     * Works out the safety area of the current points right away, dropping the requests the preview is working on,
+     * and checks the points against it
+     */
+    private void settleBoundaries() {
+        preview.cancel();
+        checkBoundaries(app.popUpBook.getTree().getBoundarys(patchA, patchB,
+                verticesA.get(0), verticesA.get(0).add(deltaAxis), verticesB.get(0), verticesB.get(0).add(deltaAxis),
+                verticesA.get(2), verticesA.get(3), verticesB.get(2), verticesB.get(3),
+                "D2Joint"));
+    }
+
+    /**
+     * Asks for the safety area of the current points. The points are checked against it when the preview has worked it out
+     */
+    private void requestBoundaries() {
+        preview.request(app.popUpBook.getTree(), patchA, patchB,
+                verticesA.get(0), verticesA.get(0).add(deltaAxis), verticesB.get(0), verticesB.get(0).add(deltaAxis),
+                verticesA.get(2), verticesA.get(3), verticesB.get(2), verticesB.get(3),
+                "D2Joint");
+    }
+
+    /**
+     * Checks the points against the safety area worked out for them. A side dragged out of the area goes back to
+     * where it last fit and the area shown is kept, a side that is too tall for its patch is lowered and checked again.
+     * @param results pair of vertices list of the safety area of patch A and patch B, null if there is none
+     */
+    private void checkBoundaries(ArrayList<ArrayList<Vector3f>> results) {
+        if (previewSide == null) {
+            showBoundaries(results);
+            if (boundaryA != null) {
+                fitInBoundaries();
+                updateGraphics();
+            }
+            return;
+        }
+        boolean sideA = previewSide.equals("shiftA");
+        ArrayList<Vector3f> vertices = sideA ? verticesA : verticesB;
+        PopUpBookTree.PatchNode patch = sideA ? patchA : patchB;
+        Vector3f axisTranslation = sideA ? axisTranslationA : axisTranslationB;
+        if (results == null || results.get(sideA ? 0 : 1).get(3).distance(results.get(sideA ? 0 : 1).get(2)) < 0.5f) {
+            restoreSide(sideA);
+        } else {
+            ArrayList<ArrayList<Vector3f>> lastBoundaries = getShownBoundaries();
+            showBoundaries(results);
+            if (patch.getFrame().touchesLine(vertices.get(0), deltaAxis)) {
+                //Still OK tall
+                fitInBoundaries();
+                acceptedState = copyCurrentState();
+            } else {
+                //Too tall
+                Vector3f tallestPoint = Util.closestPointToDirection(axisTranslation, patch.boundary);
+                Vector3f adjustTranslation = Util.lineIntersection(tallestPoint, tallestPoint.add(axisTranslation.mult(100f)), vertices.get(0).add(deltaAxis.mult(100f)), vertices.get(1).add(deltaAxis.negate().mult(100f)));
+                if (adjustTranslation != null) {
+                    adjustTranslation.set(tallestPoint.subtract(adjustTranslation));
+                    for (Vector3f point : vertices) {
+                        point.addLocal(adjustTranslation);
+                    }
+                    referencePoint.addLocal(adjustTranslation);
+                }
+                if (adjustTranslation == null || !patch.getFrame().touchesLine(vertices.get(0), deltaAxis)) {
+                    restoreSide(sideA);
+                    showBoundaries(lastBoundaries);
+                } else {
+                    //the points were moved after the check, they are checked again against the area of where they ended up
+                    requestBoundaries();
+                }
+            }
+        }
+        updateGraphics();
+    }
+
+    /**
+     * Moves a dragged side back to where it last fit in the safety area, along with the point it is dragged by
+     * if it is still being dragged
+     * @param sideA true for the side of patch A, false for the side of patch B
+     */
+    private void restoreSide(boolean sideA) {
+        ArrayList<Vector3f> vertices = sideA ? verticesA : verticesB;
+        ArrayList<Vector3f> accepted = acceptedState.get(sideA ? 0 : 1);
+        if (previewSide.equals(dragMode)) {
+            referencePoint.subtractLocal(vertices.get(0).subtract(accepted.get(0)));
+        }
+        for (int i = 0; i < vertices.size(); i++) {
+            vertices.get(i).set(accepted.get(i));
+        }
+    }
+
+    /**
+     * Gets the safety area shown
+     * @return pair of vertices list of the safety area of patch A and patch B, null if there is none
+     */
+    private ArrayList<ArrayList<Vector3f>> getShownBoundaries() {
+        if (boundaryA == null) {
+            return null;
+        }
+        ArrayList<ArrayList<Vector3f>> shown = new ArrayList<>();
+        shown.add(boundaryA);
+        shown.add(boundaryB);
+        return shown;
+    }
+
+    /**
+     * Shows the safety area
+     * @param results pair of vertices list of the safety area of patch A and patch B, null if there is none
      */
-    private void updateBoundaries() {
-        ArrayList<ArrayList<Vector3f>> results = app.popUpBook.getBoundarys(patchA.geometry, patchB.geometry,
-                                                                            verticesA.get(0),verticesA.get(0).add(deltaAxis) ,verticesB.get(0), verticesB.get(0).add(deltaAxis),
-                                                                            verticesA.get(2), verticesA.get(3),verticesB.get(2), verticesB.get(3),
-                                                                            "D2Joint");
+    private void showBoundaries(ArrayList<ArrayList<Vector3f>> results) {
         if (results != null) {
 
             boundaryA = results.get(0);
@@ -941,6 +994,7 @@ public class D2CreationState extends BaseAppState {
      */
     @Override
     protected void onDisable() {
+        preview.cancel();
         inputManager.removeListener(d2BasicInput);
         app.getRootNode().detachChild(tempNode);
     }
@@ -19,7 +19,6 @@ package mygame;
 
 import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
-import com.jme3.collision.CollisionResult;
 import com.jme3.collision.CollisionResults;
 import com.jme3.input.InputManager;
 import com.jme3.input.KeyInput;
@@ -36,7 +35,6 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Sphere;
-import java.util.ArrayList;
 
 /**
  *
@@ -67,11 +65,65 @@ public class ExplorationState extends BaseAppState {
     //setting for the speed the design folds. bigger number is faster
     private final float frame = 0.75f;
 
+    //number of fold percentages sampled for playing back the fold
+    private final int trajectorySamples = 64;
+
     //variable to keep track of fold percentage
     private float percentage = 0;
 
+    //fold percentage where the patches first touch while folding with space, -1 if they do not touch
+    private float contact = -1f;
+    //true while folding with space has not looked up the first contact in the timeline yet,
+    //the poses played back are checked on their own until the timeline is ready
+    private boolean contactAwaited;
+    //largest step between the poses checked for a contact when stepping the fold before the timeline is ready
+    private final float checkStep = 0.025f;
+
+    //works out where the design collides while folding, in the background
+    private CollisionSweep sweep;
+    //ranges of fold percentages where the design collides, null until the sweep of the current design is done
+    private CollisionTimeline timeline;
+    //samples the poses of the design for playing back the fold, in the background
+    private LatestWinsWorker<PopUpBookTree, FoldTrajectory> trajectoryWorker;
+
     @Override
     protected void cleanup(Application app) {
+        sweep.shutdown();
+        trajectoryWorker.shutdown();
+    }
+
+    /**
+     * Samples the poses of a snapshot of the design
+     */
+    private static class TrajectoryTask implements LatestWinsWorker.Task<PopUpBookTree, FoldTrajectory> {
+
+        @Override
+        public FoldTrajectory compute(PopUpBookTree snapshot) {
+            return snapshot.sampleTrajectory();
+        }
+    }
+
+    /**
+     * Listener handing the sampled poses to the design, which drops them if it changed in the meantime
+     */
+    private class TrajectoryListener implements LatestWinsWorker.Listener<FoldTrajectory> {
+
+        @Override
+        public void resultReady(FoldTrajectory trajectory) {
+            app.popUpBook.getTree().setTrajectory(trajectory);
+        }
+    }
+
+    /**
+     * Listener getting the collision timeline of the design
+     */
+    private class ExplorationSweepListener implements CollisionSweep.Listener {
+
+        @Override
+        public void timelineReady(CollisionTimeline result) {
+            timeline = result;
+            app.setText("Mode", "Exploration Mode\n" + result);
+        }
     }
 
     /*
@@ -91,8 +143,8 @@ public class ExplorationState extends BaseAppState {
                             //two patches is selected
                             Geometry geomA = app.selected.get(0);
                             Geometry geomB = app.selected.get(1);
-                            geomA.setMaterial(app.paper);
-                            geomB.setMaterial(app.paper);
+                            app.popUpBook.setMarked(geomA, false);
+                            app.popUpBook.setMarked(geomB, false);
 
                             if (app.popUpBook.isNeighbor(geomA, geomB)) {
                                 //Case V-Style Joint
@@ -165,6 +217,9 @@ public class ExplorationState extends BaseAppState {
                     if (keyPressed) {
                         //When Space is pressed
                         fold = 1;
+                        //a collision that is already shown does not stop the fold again, the contact is looked up in update
+                        contact = -1f;
+                        contactAwaited = collisionIndicatorNode.getChildren().isEmpty();
                     } else {
                         //When Space is not pressed
                         fold = -1;
@@ -177,22 +232,24 @@ public class ExplorationState extends BaseAppState {
                         fold = 0;
                         if (collisionIndicatorNode.getChildren().isEmpty()) {
                             //no existing collision before the fold increment
-                            percentage += 0.1;
-                            if (percentage > 0.98f) {
-                                percentage = 1f - 0.001f;
-                                app.setText("Hint", "100%");
-                            } else {
-                                app.setText("Hint", (int) (percentage * 100) + "%");
+                            float next = percentage + 0.1f;
+                            if (next > 0.98f) {
+                                next = 1f - 0.001f;
                             }
-                            
-                            //fold to the percentage specified and check for collision
-                            app.popUpBook.fold(percentage);
-                            ArrayList<Vector3f> collision = app.popUpBook.getCollisions();
-                            if (collision != null) {
-                                for (Vector3f point : collision) {
-                                    addDot(point);
+                            //stop at the first contact instead of stepping over it
+                            float stepContact = timeline == null ? checkContact(next) : getFirstContact(next);
+                            if (stepContact >= 0f) {
+                                percentage = stepContact;
+                                app.setText("Hint", (int) (percentage * 100) + "%");
+                                showContact();
+                            } else {
+                                percentage = next;
+                                if (percentage > 0.98f) {
+                                    app.setText("Hint", "100%");
+                                } else {
+                                    app.setText("Hint", (int) (percentage * 100) + "%");
                                 }
-                                fold = 0;
+                                app.popUpBook.foldCached(percentage);
                             }
                         }
 
@@ -213,7 +270,7 @@ public class ExplorationState extends BaseAppState {
 
                         }
                         //fold to the specified percentage and remove all collision indicator
-                        app.popUpBook.fold(percentage);
+                        app.popUpBook.foldCached(percentage);
                         collisionIndicatorNode.detachAllChildren();
 
                     }
@@ -229,16 +286,15 @@ public class ExplorationState extends BaseAppState {
                         Vector3f dir = app.getCamera().getWorldCoordinates(
                                 click2d, 1f).subtractLocal(click3d).normalizeLocal();
                         Ray ray = new Ray(click3d, dir);
-                        app.patches.collideWith(ray, results);
-                        if (results.size() > 0) {
+                        // The closest collision point is what was truly hit:
+                        Geometry picked = app.popUpBook.pick(ray, results);
+                        if (picked != null) {
                             //the ray hit something
-                            // The closest collision point is what was truly hit:
-                            CollisionResult closest = results.getClosestCollision();
-                            if (!(app.selected.contains(closest.getGeometry()))) {
-                                app.selected.add(closest.getGeometry());
+                            if (!(app.selected.contains(picked))) {
+                                app.selected.add(picked);
                             }
                             // Mark the patch
-                            closest.getGeometry().setMaterial(app.markPaper);
+                            app.popUpBook.setMarked(picked, true);
 
                         } else {
                             //the ray hit nothing
@@ -260,6 +316,7 @@ public class ExplorationState extends BaseAppState {
                             app.popUpBook.delete(app.popUpBook.geomPatchMap.get(app.selected.get(0)));
                             app.selected.clear();
                             app.popUpBook.update();
+                            designChanged();
                         }
 
                     }
@@ -287,6 +344,7 @@ public class ExplorationState extends BaseAppState {
         if (inputManager == null) {
             inputManager = app.getInputManager();
         }
+        this.app.popUpBook.setTrajectorySamples(trajectorySamples);
         
         //input mappings
         inputManager.addMapping(E_CLICK, new MouseButtonTrigger(MouseInput.BUTTON_LEFT));
@@ -304,37 +362,46 @@ public class ExplorationState extends BaseAppState {
         this.app.getRootNode().attachChild(collisionIndicatorNode);
         dotMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
         dotMaterial.setColor("Color", ColorRGBA.Red);
+        sweep = new CollisionSweep(app, new ExplorationSweepListener());
+        trajectoryWorker = new LatestWinsWorker<>(app, "FoldTrajectory", new TrajectoryTask(), new TrajectoryListener());
 
     }
 
     //Update the graphics if the fold flag is up
     @Override
     public void update(float tpf) {
+        if (fold == 1 && contactAwaited && timeline != null) {
+            contact = getFirstContact(0.98f);
+            contactAwaited = false;
+        }
         if (fold == 1) {
             if (percentage < 0.98f) {
                 percentage += tpf * frame;
-                app.setText("Hint", (int) (percentage * 100) + "%");
-                app.popUpBook.fold(percentage);
-                ArrayList<Vector3f> collision = app.popUpBook.getCollisions();
-                if (collision != null) {
-                    for (Vector3f point : collision) {
-                        addDot(point);
-                    }
+                if (contact >= 0f && percentage >= contact) {
+                    //stop right at the first contact instead of the frame after it
+                    percentage = contact;
+                    showContact();
                     fold = 0;
+                } else {
+                    app.popUpBook.foldCached(percentage);
+                    if (contactAwaited && !app.popUpBook.getCollisionReport().isEmpty()) {
+                        //the timeline is not ready yet, so the fold stops at the first pose found colliding
+                        showContact();
+                        fold = 0;
+                    }
                 }
+                app.setText("Hint", (int) (percentage * 100) + "%");
 
             } else {
                 fold = 0;
                 percentage = 1 - 0.001f;
                 app.setText("Hint", "100%");
-                app.popUpBook.fold(percentage);
+                app.popUpBook.foldCached(percentage);
             }
 
         } else if (fold == -1) {
             collisionIndicatorNode.detachAllChildren();
-            for (Geometry patch : app.popUpBook.geomPatchMap.keySet()) {
-                patch.setMaterial(app.paper);
-            }
+            app.popUpBook.clearMarks();
             if (percentage < 0.02) {
                 fold = 0;
                 percentage = 0f;
@@ -345,7 +412,7 @@ public class ExplorationState extends BaseAppState {
                 app.setText("Hint", (int) (percentage * 100) + "%");
 
             }
-            app.popUpBook.fold(percentage);
+            app.popUpBook.foldCached(percentage);
         }
 
     }
@@ -357,6 +424,7 @@ public class ExplorationState extends BaseAppState {
     protected void onEnable() {
         app.setText("Mode", "Exploration Mode");
         app.popUpBook.fold(0f);
+        designChanged();
 
         inputManager.addListener(buildListener, E_D1);
         inputManager.addListener(buildListener, E_D2);
@@ -383,10 +451,72 @@ public class ExplorationState extends BaseAppState {
     protected void onDisable() {
         inputManager.removeListener(buildListener);
         inputManager.removeListener(exploreListener);
+        sweep.cancel();
+        trajectoryWorker.cancel();
         System.out.println("Explore disabled");
         //System.out.println(app.getInputManager().de);
     }
     
+    /**
+     * Asks for the collision timeline and the poses for playing back the fold of the design, after it changed.
+     * Both are worked out in the background, the design is folded normally until the poses are ready.
+     */
+    private void designChanged() {
+        timeline = null;
+        sweep.request(app.popUpBook.getTree());
+        if (!app.popUpBook.getTree().hasTrajectory()) {
+            trajectoryWorker.request(app.popUpBook.getTree().snapshot());
+        }
+    }
+
+    /**
+     * Gets the first fold percentage from the current percentage on where patches touch, from the timeline,
+     * which has to be ready
+     * @param to percentage to end at
+     * @return the first percentage with a collision, the current percentage if the patches collide there,
+     * -1 if the patches do not touch in the range
+     */
+    private float getFirstContact(float to) {
+        for (CollisionTimeline.Interval interval : timeline.getIntervals()) {
+            if (interval.getTo() >= percentage && interval.getFrom() <= to) {
+                return Math.max(interval.getFrom(), percentage);
+            }
+        }
+        return -1f;
+    }
+
+    /**
+     * Gets the first fold percentage from the current percentage on where patches touch, by checking poses
+     * no more than checkStep apart, for when the timeline is not ready yet. A contact shorter than the step
+     * can be missed.
+     * @param to percentage to end at
+     * @return the first checked percentage with a collision, -1 if none of them collides
+     */
+    private float checkContact(float to) {
+        int checks = Math.max(1, (int) FastMath.ceil((to - percentage) / checkStep));
+        for (int i = 1; i <= checks; i++) {
+            float checked = percentage + (to - percentage) * i / checks;
+            if (!app.popUpBook.getCollisionReport(checked).isEmpty()) {
+                return checked;
+            }
+        }
+        return -1f;
+    }
+
+    /**
+     * Folds the design exactly to the current percentage and marks the collisions found there
+     */
+    private void showContact() {
+        app.popUpBook.fold(percentage);
+        CollisionReport report = app.popUpBook.getCollisionReport();
+        app.popUpBook.markCollisions(report);
+        for (CollisionReport.Pair pair : report.getPairs()) {
+            for (Vector3f point : pair.getPoints()) {
+                addDot(point);
+            }
+        }
+    }
+
     /**
      * Attatch point to collision Node
      * @param dotLocation 
@@ -404,9 +534,7 @@ public class ExplorationState extends BaseAppState {
      */
     private void removeSelect() {
         app.selected.clear();
-        for (Geometry patch : app.popUpBook.geomPatchMap.keySet()) {
-            patch.setMaterial(app.paper);
-        }
+        app.popUpBook.clearMarks();
     }
 
 }
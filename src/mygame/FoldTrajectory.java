@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+/**
+ * The poses of a design sampled from open to closed, for playing the fold back without solving the joints,
+ * see PopUpBookTree.sampleTrajectory and PopUpBookTree.foldCached. It never changes once it is made, so it can be
+ * sampled in a snapshot on another thread and handed to the tree after. It only fits a tree with the same patches and joints.
+ * @author Evans
+ */
+public final class FoldTrajectory {
+    //Number of floats stored per patch per sample: the hinge angle, the rotation as x, y, z and w, and the translation
+    static final int POSE_SIZE = 8;
+
+    private final int structureVersion;
+    private final int patchCount;
+    private final float[] percents;
+    private final float[] poses;
+
+    /**
+     * Constructor of the FoldTrajectory Class
+     * @param structureVersion version of the structure of the tree the poses were sampled in
+     * @param patchCount number of patches in each pose
+     * @param percents fold percentage of each sample, in order
+     * @param poses pose of every patch at every sample, one row of patches per sample, POSE_SIZE floats per patch
+     */
+    FoldTrajectory(int structureVersion, int patchCount, float[] percents, float[] poses) {
+        this.structureVersion = structureVersion;
+        this.patchCount = patchCount;
+        this.percents = percents;
+        this.poses = poses;
+    }
+
+    /**
+     * Gets the number of poses sampled
+     * @return number of samples
+     */
+    public int getSampleCount() {
+        return percents.length;
+    }
+
+    /**
+     * Gets the fold percentage of a sample
+     * @param sample index of the sample
+     * @return fold percentage
+     */
+    public float getPercent(int sample) {
+        return percents[sample];
+    }
+
+    /**
+     * Gets the version of the structure of the tree the poses were sampled in
+     * @return structure version
+     */
+    int getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Gets the number of patches in each pose
+     * @return number of patches
+     */
+    int getPatchCount() {
+        return patchCount;
+    }
+
+    /**
+     * Gets the last sample at or below a fold percentage, and never the last sample so there is always one after it
+     * @param percent fold percentage
+     * @return index of the sample
+     */
+    int getSampleBelow(float percent) {
+        int low = 0;
+        int high = percents.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (percents[middle] <= percent) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the poses, not to be changed
+     * @return pose of every patch at every sample, one row of patches per sample, POSE_SIZE floats per patch
+     */
+    float[] getPoses() {
+        return poses;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.app.Application;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Works on requests on a background thread and hands the results back on the render thread, for work that would
+ * stall a frame. Only the latest request is worked on, requests made while the worker is busy replace each other,
+ * and only the result of the latest request is handed to the listener.
+ * @param <Q> type of the requests
+ * @param <R> type of the results
+ * @author Evans
+ */
+public class LatestWinsWorker<Q, R> {
+    private static final Logger logger = Logger.getLogger(LatestWinsWorker.class.getName());
+
+    private final Application app;
+    private final Task<Q, R> task;
+    private final Listener<R> listener;
+    private final ExecutorService worker;
+
+    //the latest request that has not been started yet, with its number
+    private final AtomicReference<Numbered<Q>> pending = new AtomicReference<>();
+    //number of the latest request, results of older requests are dropped
+    private final AtomicInteger latest = new AtomicInteger();
+    //true while the worker has a task queued or running
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    //number of the last request that was handed to the listener or cancelled, only used on the render thread
+    private int settled;
+
+    /**
+     * The work done for a request
+     * @param <Q> type of the requests
+     * @param <R> type of the results
+     */
+    public interface Task<Q, R> {
+
+        /**
+         * Called on the worker thread
+         * @param request the request
+         * @return the result
+         */
+        R compute(Q request);
+    }
+
+    /**
+     * Gets the results of the worker
+     * @param <R> type of the results
+     */
+    public interface Listener<R> {
+
+        /**
+         * Called on the render thread with the result of the latest request
+         * @param result the result
+         */
+        void resultReady(R result);
+    }
+
+    /**
+     * Constructor for the LatestWinsWorker
+     * @param app the application to hand the results back to
+     * @param name name of the worker thread
+     * @param task the work done for a request
+     * @param listener listener getting the results
+     */
+    public LatestWinsWorker(Application app, final String name, Task<Q, R> task, Listener<R> listener) {
+        this.app = app;
+        this.task = task;
+        this.listener = listener;
+        worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Asks for the result of a request. Has to be called on the render thread. The request is handed to another thread,
+     * so it must not be changed after.
+     * @param request the request
+     */
+    public void request(Q request) {
+        pending.set(new Numbered<>(latest.incrementAndGet(), request));
+        if (scheduled.compareAndSet(false, true)) {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all requests made so far, so no more results are handed to the listener until the next request
+     */
+    public void cancel() {
+        settled = latest.incrementAndGet();
+        pending.set(null);
+    }
+
+    /**
+     * Checks if the result of the latest request has not been handed to the listener yet.
+     * Has to be called on the render thread.
+     * @return true while a request is being worked on
+     */
+    public boolean isPending() {
+        return settled != latest.get();
+    }
+
+    /**
+     * Cancels the requests and stops the worker thread
+     */
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    /**
+     * Works on the latest request until there is none left. A request whose task throws is logged and dropped,
+     * so the worker keeps going with the next request.
+     */
+    private void work() {
+        //true once the flag is cleared or handed to the task queued by a newer request
+        boolean released = false;
+        try {
+            while (true) {
+                Numbered<Q> request = pending.getAndSet(null);
+                if (request == null) {
+                    scheduled.set(false);
+                    //a request made just before the flag was cleared would not have queued a task
+                    if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                        released = true;
+                        return;
+                    }
+                    continue;
+                }
+                final int number = request.number;
+                R computed;
+                try {
+                    computed = task.compute(request.value);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Request dropped by " + Thread.currentThread().getName(), e);
+                    drop(number);
+                    continue;
+                }
+                final R result = computed;
+                if (number == latest.get()) {
+                    app.enqueue(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            //the request could have been replaced or cancelled while the result waited for the render thread
+                            if (number == latest.get()) {
+                                settled = number;
+                                listener.resultReady(result);
+                            }
+                            return null;
+                        }
+                    });
+                }
+            }
+        } finally {
+            if (!released) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Settles a request that has no result, so isPending does not wait for it forever
+     * @param number number of the request
+     */
+    private void drop(final int number) {
+        if (number == latest.get()) {
+            app.enqueue(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if (number == latest.get()) {
+                        settled = number;
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**
+     * A request with its number
+     * @param <Q> type of the requests
+     */
+    private static class Numbered<Q> {
+        private final int number;
+        private final Q value;
+
+        /**
+         * Constructor of the Numbered Class
+         * @param number number of the request
+         * @param value the request
+         */
+        private Numbered(int number, Q value) {
+            this.number = number;
+            this.value = value;
+        }
+    }
+}
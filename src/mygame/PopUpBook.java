@@ -57,7 +57,7 @@ public class PopUpBook extends SimpleApplication{
     public ArrayList<Geometry> selected;
     
     //design data
-    public PopUpBookTree popUpBook;
+    public PopUpBookView popUpBook;
     
     //textbox at the corners of window
     private BitmapText modeText;
@@ -160,9 +160,11 @@ public class PopUpBook extends SimpleApplication{
      * initializes the data and the camera
      */
     private void initBook(){
-        popUpBook = new PopUpBookTree(width,height,this);
+        popUpBook = new PopUpBookView(width,height,this);
+        //draw all patches as one mesh
+        popUpBook.setMerged(true);
         
-        chaseCam = new ChaseCamera(cam,popUpBook.getFront() , inputManager);
+        chaseCam = new ChaseCamera(cam,patches , inputManager);
         chaseCam.setInvertVerticalAxis(true);
         chaseCam.setMaxVerticalRotation(FastMath.HALF_PI);
         chaseCam.setDefaultHorizontalRotation(FastMath.HALF_PI);
@@ -17,57 +17,135 @@
  */
 package mygame;
 
-import com.jme3.collision.CollisionResults;
-import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
 import com.jme3.math.Plane;
-import com.jme3.math.Ray;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
-import com.jme3.scene.Geometry;
-import com.jme3.scene.Node;
-import com.jme3.scene.Spatial;
-import com.jme3.scene.VertexBuffer;
-import com.jme3.scene.shape.Box;
-import com.jme3.scene.shape.Cylinder;
-import com.jme3.util.BufferUtils;
-import java.nio.FloatBuffer;
+import com.jme3.util.TempVars;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * The class the holds the data structure for the program.
+ * The class the holds the data structure for the program, folds it and checks it for collisions.
+ * It only works on the patch boundaries and has no graphics, PopUpBookView shows it in the scene.
  * @author Evans
  */
 public class PopUpBookTree {
-    //Hashmap mapping the geometry with its patchNode;
-    public HashMap<Geometry, PatchNode> geomPatchMap = new HashMap<>();
+    //List of all patches in the structure, not including phantom patches
+    private ArrayList<PatchNode> patches = new ArrayList<>();
     
     //The PatchNode and JointNode for the front and back cover
     private PatchNode front;
     private PatchNode back;
     private JointNode bookJoint;
     
+    //Incremented whenever a patch is rotated, so the patches know their cached transforms are out of date
+    private int poseVersion;
+    
     //List of all JointNode in the structure
     private ArrayList<JointNode> joints;
     
+    //Joints in the order fold fixes them. null when the structure changed and it needs to be worked out again
+    private ArrayList<JointNode> solvePlan;
+    //Rounds of joints that are not worked out yet, and of joints that can never be fixed, when working out the order
+    private static final int UNPLANNED = -1;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    
+    //Fold percentage the current pose was solved for. NaN when the next fold has to start from the unfolded position
+    private float solvedPercent = Float.NaN;
+    //Fold percentage the current pose shows, solved or interpolated by the trajectory cache, for the collision reports
+    private float posePercent = 0f;
+    //Number of folds applied on top of the previous pose since the last full fold
+    private int incrementalFolds;
+    
+    //Largest change of fold percentage that is applied on top of the previous pose instead of folding from scratch
+    private static final float MAX_INCREMENTAL_STEP = 0.2f;
+    //Number of incremental folds after which the pose is rebuilt from the unfolded position to clear rounding errors
+    private static final int MAX_INCREMENTAL_FOLDS = 120;
+    //Largest gap between the two sides of a joint that is accepted after an incremental fold
+    private static final float MAX_JOINT_DRIFT = 0.001f;
+    
+    //Patches sorted by their bounding boxes along the sweep axis at the last collision check. null when patches were added or removed,
+    //which also means the patch ids and the patches excluded from collision checks are out of date
+    private PatchNode[] sweepOrder;
+    //Axis the patches were sorted along, 0 for x, 1 for y and 2 for z
+    private int sweepAxis;
+    //Margin added around the bounding boxes so patches that only touch still reach the exact test
+    private static final float BOUNDS_MARGIN = Util.FLT_EPSILON;
+    
+    //Pool the exact tests are split over, shared by all trees
+    private static final ForkJoinPool NARROW_PHASE = new ForkJoinPool();
+    //Number of pairs from which the exact tests are split over the pool, and the number of pairs a task tests by itself
+    private static final int PARALLEL_PAIRS = 32;
+    private static final int PAIRS_PER_TASK = 8;
+    
+    //Report of the pose of the given version, and the reports of fold percentages asked for, least recently asked for first.
+    //Dropped when the design changes
+    private CollisionReport report;
+    private int reportVersion;
+    private final LinkedHashMap<Float, CollisionReport> reports = new LinkedHashMap<Float, CollisionReport>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Float, CollisionReport> eldest) {
+            return size() > MAX_REPORTS;
+        }
+    };
+    //Number of reports of fold percentages kept, the least recently asked for is dropped to make room for a new one
+    private static final int MAX_REPORTS = 256;
+    
+    //Largest fold step taken when looking for the first contact, and how close the first contact is narrowed down to
+    private static final float CONTACT_STEP = 1f / 64f;
+    private static final float CONTACT_TOLERANCE = 0.0001f;
+    //Largest distance a vertex moves in one step of the collision sweep, and the smallest and largest steps it takes
+    private static final float SWEEP_DISTANCE = 0.1f;
+    private static final float MIN_SWEEP_STEP = 1f / 1024f;
+    private static final float MAX_SWEEP_STEP = 1f / 16f;
+    
+    //Number of fold percentages sampled evenly by the trajectory cache before it is refined, less than 2 when the cache is off
+    private int trajectorySamples;
+    //Poses played back by foldCached. null when the cache is off or the design changed since it was sampled
+    private FoldTrajectory trajectory;
+    //Counts the changes to the patches and joints, so a trajectory is only used by a tree with the structure it was sampled in
+    private int structureVersion;
+    //Largest distance a vertex of an interpolated pose may be from the solved pose, checked halfway between two samples
+    private static final float MAX_TRAJECTORY_ERROR = MAX_JOINT_DRIFT;
+    //Smallest gap between two samples the trajectory is refined down to
+    private static final float MIN_TRAJECTORY_STEP = 1f / 4096f;
+    //Largest fold percentage the trajectory is sampled up to, since a book folded all the way has no well defined pose
+    private static final float MAX_TRAJECTORY_PERCENT = 1f - 0.001f;
+    
     private float height;
     private float width;
-    private PopUpBook app;
+    //corners of the slab around the back page that new patches are clipped to
+    private Vector3f pageMin;
+    private Vector3f pageMax;
+    
+    //For a snapshot, the tree it was taken from and the patch of the snapshot made from each patch of that tree.
+    //null for a tree that is not a snapshot
+    private PopUpBookTree source;
+    private HashMap<PatchNode, PatchNode> copies;
 
     /**
      * Constructor for the PopUpBookTree. Creates the front and back cover given width and height
      * @param width
      * @param height
-     * @param app reference to the PopUpBook object
      */
-    PopUpBookTree(float width, float height, PopUpBook app) {
-
-        this.app = app;
+    public PopUpBookTree(float width, float height) {
         this.width = width;
         this.height = height;
+        pageMin = new Vector3f(0f, -0.5f, -height / 2f);
+        pageMax = new Vector3f(width, 0.5f, height / 2f);
         Vector3f[] backBoundary = new Vector3f[4];
         backBoundary[0] = new Vector3f(0f, 0f, -height / 2f);
         backBoundary[1] = new Vector3f(width, 0f, -height / 2f);
@@ -88,65 +166,493 @@ public class PopUpBookTree {
         front.joint = bookJoint;
         joints.add(bookJoint);
     }
+    
+    /**
+     * Constructor for a snapshot of a tree. The snapshot gets its own patches, joints and pose, and shares the
+     * boundaries and axis of the patches with the original, since they are never changed once a patch is made.
+     * @param original the tree to take the snapshot of
+     */
+    private PopUpBookTree(PopUpBookTree original) {
+        width = original.width;
+        height = original.height;
+        pageMin = original.pageMin.clone();
+        pageMax = original.pageMax.clone();
+        joints = new ArrayList<>();
+        source = original;
+        copies = new HashMap<>();
+        //a parent is always added before its children
+        for (PatchNode patch : original.patches) {
+            PatchNode copy = new PatchNode(copies.get(patch.parent), patch.axis, patch.boundary);
+            copy.angle = patch.angle;
+            patches.add(copy);
+            copies.put(patch, copy);
+        }
+        for (JointNode joint : original.joints) {
+            JointNode copy = new JointNode(copies.get(joint.patchA), copies.get(joint.patchB), joint.jointAxis, joint.type);
+            copy.previousIntersection.set(joint.previousIntersection);
+            copy.patchA.joint = copy;
+            copy.patchB.joint = copy;
+            joints.add(copy);
+            if (joint == original.bookJoint) {
+                bookJoint = copy;
+            }
+        }
+        front = copies.get(original.front);
+        back = copies.get(original.back);
+        posePercent = original.posePercent;
+        //the snapshot has the same structure, so it can use and sample the same trajectories
+        structureVersion = original.structureVersion;
+        trajectorySamples = original.trajectorySamples;
+        trajectory = original.trajectory;
+    }
+    
+    /**
+     * Takes a snapshot of the tree to work on without changing the tree, for example to preview a joint.
+     * The snapshot has to be taken on the thread that changes the tree. After that it is not connected to the tree
+     * and can be handed to another thread, but like the tree it must only be used by one thread at a time, since even
+     * reading the pose or checking collisions fills caches in the tree and its patches. Take a snapshot for each thread.
+     * @return the snapshot
+     */
+    public PopUpBookTree snapshot() {
+        return new PopUpBookTree(this);
+    }
+    
+    /**
+     * Gets the patch of this tree made from a patch of the tree this snapshot was taken from,
+     * or from a patch of any tree before that if it is a snapshot too
+     * @param original a patch of this tree or of a tree this tree is a snapshot of
+     * @return the patch in this tree, null if the patch is not in any of the trees
+     */
+    public PatchNode getCopy(PatchNode original) {
+        if (original == null || original.getTree() == this) {
+            return original;
+        }
+        if (source == null) {
+            return null;
+        }
+        return copies.get(source.getCopy(original));
+    }
 
     /**
-     * Checks if a collision exist, if yess, gets all point of collision of patches and marks the patches involved.
+     * Checks if a collision exist, if yess, gets all point of collision of patches.
+     * Patches are swept along the axis they are spread out the most on by their bounding boxes,
+     * so only patches with overlapping boxes are tested. The pose is checked again every time, see getCollisionReport.
      * @return the list of collision points
      */
     public ArrayList<Vector3f> getCollisions() {
-        ArrayList<Vector3f> collisionList = new ArrayList<>();
-        PatchNode[] patchList = geomPatchMap.values().toArray(new PatchNode[geomPatchMap.size()]);
+        return makeReport(posePercent).getPoints();
+    }
+    
+    /**
+     * Same as getCollisions, but also collects the patches involved
+     * @param collided collection to add the patches involved to
+     * @return the list of collision points
+     */
+    public ArrayList<Vector3f> getCollisions(Collection<PatchNode> collided) {
+        CollisionReport collisions = makeReport(posePercent);
+        for (CollisionReport.Pair pair : collisions.getPairs()) {
+            collided.add(getPatch(pair.getIdA()));
+            collided.add(getPatch(pair.getIdB()));
+        }
+        return collisions.getPoints();
+    }
+    
+    /**
+     * Gets the collisions in the current pose. The report is kept until the pose or the design changes,
+     * so asking again for the same pose does not check again.
+     * @return the report, empty if nothing collides
+     */
+    public CollisionReport getCollisionReport() {
+        if (report == null || reportVersion != poseVersion || Float.compare(report.getPercent(), posePercent) != 0) {
+            report = makeReport(posePercent);
+            reportVersion = poseVersion;
+        }
+        return report;
+    }
+    
+    /**
+     * Gets the collisions when the design is folded to a percentage, without changing the pose of the tree.
+     * The design is folded in a snapshot, and the report is kept until the design changes, so asking again
+     * for the same percentage does not fold again.
+     * @param percent percentage of fold
+     * @return the report, empty if nothing collides
+     */
+    public CollisionReport getCollisionReport(float percent) {
+        CollisionReport memo = reports.get(percent);
+        if (memo == null) {
+            PopUpBookTree sandbox = snapshot();
+            sandbox.fold(percent, false);
+            memo = sandbox.makeReport(percent);
+            reports.put(percent, memo);
+        }
+        return memo;
+    }
+    
+    /**
+     * Gets a patch by its id, which is its index in the tree until patches are added or removed.
+     * Snapshots give their copies the same ids.
+     * @param id id of the patch, see CollisionReport
+     * @return the patch
+     */
+    public PatchNode getPatch(int id) {
+        return patches.get(id);
+    }
+    
+    /**
+     * Checks the current pose for collisions
+     * @param percent fold percentage the pose is for
+     * @return the report
+     */
+    private CollisionReport makeReport(float percent) {
+        PairList candidates = findPairs();
+        return makeReport(percent, candidates, splitPairs(candidates.count));
+    }
+    
+    /**
+     * Checks the current pose for collisions, with the exact tests split over the pool or run on the calling thread
+     * whatever the number of pairs and cores, so the two can be compared
+     * @param percent fold percentage the pose is for
+     * @param split true to split the exact tests over the pool, false to run them one after the other
+     * @return the report
+     */
+    CollisionReport makeReport(float percent, boolean split) {
+        return makeReport(percent, findPairs(), split);
+    }
+    
+    /**
+     * Checks pairs found in the current pose for collisions
+     * @param percent fold percentage the pose is for
+     * @param candidates pairs to check
+     * @param split true to split the exact tests over the pool
+     * @return the report
+     */
+    private CollisionReport makeReport(float percent, PairList candidates, boolean split) {
+        //in the order of the pairs so the points come out the same however the pairs are split
+        ArrayList<Vector3f>[] hits = checkPairs(candidates, true, split);
+        ArrayList<CollisionReport.Pair> pairs = new ArrayList<>();
+        for (int pair = 0; pair < candidates.count; pair++) {
+            if (hits[pair] != null) {
+                int a = pair * 2;
+                int b = a + 1;
+                pairs.add(new CollisionReport.Pair(candidates.patches[a].id, candidates.patches[b].id, hits[pair],
+                        Util.penetrationDepth(candidates.points[a], candidates.frames[a], candidates.points[b], candidates.frames[b])));
+            }
+        }
+        return new CollisionReport(percent, pairs);
+    }
+    
+    /**
+     * Checks if any patches that are not neighbors collide in the current pose, stopping at the first collision found
+     * @return true if there is a collision
+     */
+    private boolean hasCollision() {
+        PairList candidates = findPairs();
+        ArrayList<Vector3f>[] hits = checkPairs(candidates, false, splitPairs(candidates.count));
+        for (int pair = 0; pair < candidates.count; pair++) {
+            if (hits[pair] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Finds the pairs of patches that are not neighbors and whose bounding boxes overlap in the current pose,
+     * with their current boundaries and frames for the exact tests
+     * @return the pairs found
+     */
+    private PairList findPairs() {
+        PatchNode[] patchList = sortSweepOrder();
+        int min = sweepAxis;
+        int max = sweepAxis + 3;
+        //broad phase, the patches and their caches are only touched here
+        PairList candidates = new PairList(patchList.length);
         for (int i = 0; i < patchList.length; i++) {
-            for (int x = i + 1; x < patchList.length; x++) {
-                PatchNode patchA = patchList[i];
+            PatchNode patchA = patchList[i];
+            for (int x = i + 1; x < patchList.length && patchList[x].bounds[min] <= patchA.bounds[max]; x++) {
                 PatchNode patchB = patchList[x];
                 
-                if (!patchA.isNeighbor(patchB) &&
-                    !patchA.joint.theOther(patchA).isNeighbor(patchB) && 
-                    !patchB.joint.theOther(patchB).isNeighbor(patchA)) {
-                    //System.out.println("Checking "+i +" "+x);
-                    ArrayList<Vector3f> collision = Util.boundboundIntersect(patchA.translatedBoundary, patchB.translatedBoundary);
-                    if (collision != null) {
-                        patchA.geometry.setMaterial(app.markPaper);
-                        patchB.geometry.setMaterial(app.markPaper);
-                        for(Vector3f point:collision){
-                            collisionList.add(point);
-                        }
-                    }
+                if (!patchA.excluded.get(patchB.id) && patchA.boundsOverlap(patchB)) {
+                    candidates.add(patchA, patchB);
                 }
             }
         }
-        if (!collisionList.isEmpty()) {
-            return collisionList;
+        return candidates;
+    }
+    
+    /**
+     * Checks if any two patches that are not neighbors have bounding boxes closer than a distance in the current pose
+     * @param margin the distance
+     * @return true if there are such patches
+     */
+    private boolean anyClose(float margin) {
+        PatchNode[] patchList = sortSweepOrder();
+        int min = sweepAxis;
+        int max = sweepAxis + 3;
+        for (int i = 0; i < patchList.length; i++) {
+            PatchNode patchA = patchList[i];
+            for (int x = i + 1; x < patchList.length && patchList[x].bounds[min] <= patchA.bounds[max] + margin; x++) {
+                PatchNode patchB = patchList[x];
+                if (!patchA.excluded.get(patchB.id) && patchA.boundsOverlap(patchB, margin)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Updates the bounding boxes of the patches, picks the axis they are spread out the most on
+     * and sorts the patches along it by the lower bound of their boxes
+     * @return patches sorted along the sweep axis
+     */
+    private PatchNode[] sortSweepOrder() {
+        PatchNode[] patchList = getSweepOrder();
+        float[] low = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        float[] high = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (PatchNode patch : patchList) {
+            patch.updateBounds();
+            for (int axis = 0; axis < 3; axis++) {
+                low[axis] = Math.min(low[axis], patch.bounds[axis]);
+                high[axis] = Math.max(high[axis], patch.bounds[axis]);
+            }
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            if (high[axis] - low[axis] > high[sweepAxis] - low[sweepAxis]) {
+                sweepAxis = axis;
+            }
+        }
+        int min = sweepAxis;
+        //the order from the last call is almost sorted after a small fold step, so insertion sort is close to linear
+        for (int i = 1; i < patchList.length; i++) {
+            PatchNode patch = patchList[i];
+            int x = i - 1;
+            while (x >= 0 && patchList[x].bounds[min] > patch.bounds[min]) {
+                patchList[x + 1] = patchList[x];
+                x--;
+            }
+            patchList[x + 1] = patch;
+        }
+        return patchList;
+    }
+    
+    /**
+     * Pairs of patches found by a collision check, with their boundaries and frames at the time of the check.
+     * Each check fills its own list, so the exact tests can be run on other threads without touching the patches
+     * or anything another check is using.
+     */
+    private static class PairList {
+        //the patches, boundaries and frames of a pair are next to each other, two entries for each pair
+        private PatchNode[] patches;
+        private float[][] points;
+        private BoundaryFrame[] frames;
+        private int count;
+        
+        /**
+         * Constructor of the PairList Class
+         * @param capacity number of pairs to make room for
+         */
+        private PairList(int capacity) {
+            int size = Math.max(capacity, 4) * 2;
+            patches = new PatchNode[size];
+            points = new float[size][];
+            frames = new BoundaryFrame[size];
+        }
+        
+        /**
+         * Adds a pair with the current boundaries and frames of its patches
+         * @param patchA first patch
+         * @param patchB second patch
+         */
+        private void add(PatchNode patchA, PatchNode patchB) {
+            if (count * 2 == patches.length) {
+                patches = Arrays.copyOf(patches, patches.length * 2);
+                points = Arrays.copyOf(points, points.length * 2);
+                frames = Arrays.copyOf(frames, frames.length * 2);
+            }
+            int pair = count * 2;
+            patches[pair] = patchA;
+            patches[pair + 1] = patchB;
+            points[pair] = patchA.getCurrentPoints();
+            points[pair + 1] = patchB.getCurrentPoints();
+            frames[pair] = patchA.getCurrentFrame();
+            frames[pair + 1] = patchB.getCurrentFrame();
+            count++;
+        }
+    }
+    
+    /**
+     * Checks if the exact tests of a number of pairs are worth splitting over the pool, which is when there are
+     * enough of them and more than one core to split them over
+     * @param count number of pairs
+     * @return true to split the tests
+     */
+    private static boolean splitPairs(int count) {
+        return count >= PARALLEL_PAIRS && NARROW_PHASE.getParallelism() >= 2;
+    }
+    
+    /**
+     * Gets the points where each pair of boundaries collide
+     * @param pairs pairs to check
+     * @param all true to check every pair, false to stop at the first collision found
+     * @param split true to split the pairs over the pool, false to check them one after the other
+     * @return the collision points of each pair, null for pairs that do not collide or were not checked
+     */
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Vector3f>[] checkPairs(PairList pairs, boolean all, boolean split) {
+        ArrayList<Vector3f>[] hits = new ArrayList[pairs.count];
+        NarrowPhase task = new NarrowPhase(pairs.points, pairs.frames, hits, 0, pairs.count, all ? null : new AtomicBoolean());
+        if (split) {
+            NARROW_PHASE.invoke(task);
         } else {
-            return null;
+            task.checkAll();
+        }
+        return hits;
+    }
+    
+    /**
+     * Checks a range of pairs of boundaries for collisions, splitting the range until it is small enough.
+     * It only reads the boundaries and frames it is given and writes the points of each pair to its own slot,
+     * so the tasks do not share anything but the flag telling them to stop.
+     */
+    private static class NarrowPhase extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final float[][] points;
+        private final BoundaryFrame[] frames;
+        private final ArrayList<Vector3f>[] hits;
+        private final int start;
+        private final int end;
+        //set when a collision is found and only the first one is needed, null when every pair is checked
+        private final AtomicBoolean found;
+        
+        /**
+         * Constructor of the NarrowPhase Class
+         * @param points current boundaries, two for each pair
+         * @param frames current frames, two for each pair
+         * @param hits array to store the points of each pair in
+         * @param start first pair to check
+         * @param end pair after the last pair to check
+         * @param found flag to stop at the first collision, null to check every pair
+         */
+        private NarrowPhase(float[][] points, BoundaryFrame[] frames, ArrayList<Vector3f>[] hits, int start, int end, AtomicBoolean found) {
+            this.points = points;
+            this.frames = frames;
+            this.hits = hits;
+            this.start = start;
+            this.end = end;
+            this.found = found;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start <= PAIRS_PER_TASK) {
+                checkAll();
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new NarrowPhase(points, frames, hits, start, middle, found),
+                        new NarrowPhase(points, frames, hits, middle, end, found));
+            }
+        }
+        
+        /**
+         * Checks the pairs of the range one after the other
+         */
+        private void checkAll() {
+            for (int pair = start; pair < end; pair++) {
+                if (found != null && found.get()) {
+                    return;
+                }
+                int a = pair * 2;
+                hits[pair] = Util.boundboundIntersect(points[a], frames[a], points[a + 1], frames[a + 1]);
+                if (hits[pair] != null && found != null) {
+                    found.set(true);
+                }
+            }
         }
     }
     
     /**
-     * returns the geometry of the front cover
-     * @return front cover geometry
+     * Gets the patches in the order of the lower bound of their bounding boxes along the sweep axis at the last collision check.
+     * The list and the patches excluded from collision checks are made again when patches are added or removed.
+     * @return patches sorted along the sweep axis
      */
-    public Geometry getFront() {
-        return front.geometry;
+    private PatchNode[] getSweepOrder() {
+        if (sweepOrder == null) {
+            sweepOrder = patches.toArray(new PatchNode[patches.size()]);
+            for (int i = 0; i < sweepOrder.length; i++) {
+                sweepOrder[i].id = i;
+                sweepOrder[i].excluded = new BitSet(sweepOrder.length);
+            }
+            for (PatchNode patch : sweepOrder) {
+                excludeNeighbors(patch, patch);
+                if (patch.joint != null) {
+                    excludeNeighbors(patch, patch.joint.theOther(patch));
+                }
+            }
+        }
+        return sweepOrder;
+    }
+    
+    /**
+     * Excludes a patch from being checked for collision against the neighbors of another patch, and the other way around.
+     * Patches are never checked against their own neighbors, or against the neighbors of the other patch in their joint.
+     * @param patch the patch
+     * @param other the patch whose neighbors are excluded
+     */
+    private void excludeNeighbors(PatchNode patch, PatchNode other) {
+        ArrayList<PatchNode> neighbors = new ArrayList<>(other.next);
+        neighbors.add(other.parent);
+        if (other.joint != null) {
+            neighbors.add(other.joint.patchA);
+            neighbors.add(other.joint.patchB);
+        }
+        for (PatchNode neighbor : neighbors) {
+            if (neighbor != null && neighbor != other && neighbor.id < sweepOrder.length && sweepOrder[neighbor.id] == neighbor) {
+                patch.excluded.set(neighbor.id);
+                neighbor.excluded.set(patch.id);
+            }
+        }
+    }
+    
+    /**
+     * returns the front cover
+     * @return front cover
+     */
+    public PatchNode getFront() {
+        return front;
+    }
+
+    /**
+     * returns the back cover
+     * @return back cover
+     */
+    public PatchNode getBack() {
+        return back;
+    }
+
+    /**
+     * returns all patches in the structure
+     * @return the patches
+     */
+    public ArrayList<PatchNode> getPatches() {
+        return patches;
     }
 
     /**
      * Delete a patch, and all its children and the patch at is joint to it.
      * @param patch 
+     * @param deleted list to add the deleted patches to
      */
-    public void delete(PatchNode patch) {
+    public void delete(PatchNode patch, ArrayList<PatchNode> deleted) {
         if (!patch.equals(front) && !patch.equals(back)) {
-            if(patch.geometry!= null){
-                patch.geometry.removeFromParent();
+            if (patches.remove(patch)) {
+                deleted.add(patch);
             }
-            geomPatchMap.remove(patch.geometry);
-            System.out.println(patch);
-            //patch.geometry = null;
+            structureChanged();
             if(patch.joint != null){
                 patch.joint.theOther(patch).joint = null;
                 joints.remove(patch.joint);
-                delete(patch.joint.theOther(patch));
+                delete(patch.joint.theOther(patch), deleted);
                 patch.joint = null;
             }
             
@@ -155,26 +661,23 @@ public class PopUpBookTree {
             }
             
             while (patch.next!= null && !patch.next.isEmpty()) {
-                delete(patch.next.get(0));
+                delete(patch.next.get(0), deleted);
             }
-            patch = null;
         }
 
     }
 
     /**
      * Builds a patch given the parent of the patch, its boundary, and its axis
-     * @param prev parent of the patch to add
+     * @param prev parent of the patch to add, null for a cover
      * @param boundary boundary of the patch
      * @param axis axis betwen the patch and its parent
-     * @return 
+     * @return the new patch
      */
-    public PatchNode addPatch(Geometry prev, Vector3f[] boundary, Vector3f[] axis) {
-        Geometry geometry = new Geometry("Patch", Util.makeMesh(boundary));
-        geometry.setMaterial(app.paper);
-        app.patches.attachChild(geometry);
-        PatchNode patch = new PatchNode(prev, geometry, axis, boundary);
-        geomPatchMap.put(geometry, patch);
+    public PatchNode addPatch(PatchNode prev, Vector3f[] boundary, Vector3f[] axis) {
+        PatchNode patch = new PatchNode(prev, axis, boundary);
+        patches.add(patch);
+        structureChanged();
 
         return patch;
     }
@@ -191,61 +694,647 @@ public class PopUpBookTree {
         patchA.joint = joint;
         patchB.joint = joint;
         joints.add(joint);
+        structureChanged();
     }
 
     /**
      * Folds the design given a percentage. 1 is folded all the way and 0 is not folded.
-     * Updates the graphics after
      * @param percent percentage of fold
      */
     public void fold(float percent) {
-        reset();
         fold(percent, true);
     }
+    
+    /**
+     * Sets the number of fold percentages the trajectory cache samples evenly, before more samples are added where
+     * the poses between them cannot be interpolated. Less than 2 turns the cache off.
+     * @param samples number of samples between unfolded and folded
+     */
+    public void setTrajectorySamples(int samples) {
+        trajectorySamples = samples;
+        trajectory = null;
+    }
+    
+    /**
+     * Gets the number of fold percentages the trajectory cache samples evenly
+     * @return number of samples, less than 2 when the cache is off
+     */
+    public int getTrajectorySamples() {
+        return trajectorySamples;
+    }
+    
+    /**
+     * Hands a trajectory to the cache, usually one sampled in a snapshot on another thread
+     * @param sampled the trajectory
+     * @return true if it is used, false if it is null, the cache is off or the patches or joints changed since it was sampled
+     */
+    public boolean setTrajectory(FoldTrajectory sampled) {
+        if (sampled == null || trajectorySamples < 2 || sampled.getStructureVersion() != structureVersion
+                || sampled.getPatchCount() != patches.size()) {
+            return false;
+        }
+        trajectory = sampled;
+        return true;
+    }
+    
+    /**
+     * Checks if foldCached plays the fold back from the trajectory cache
+     * @return true if a trajectory of the current design is cached
+     */
+    public boolean hasTrajectory() {
+        return trajectory != null;
+    }
+    
+    /**
+     * Samples the trajectory in a snapshot and hands it to the cache, on this thread
+     */
+    public void warmTrajectory() {
+        setTrajectory(snapshot().sampleTrajectory());
+    }
+    
+    /**
+     * Folds the design given a percentage using the trajectory cache. The rigid transform of every patch is interpolated
+     * between the two closest samples, which are close enough that the pose is within MAX_TRAJECTORY_ERROR of the solved one.
+     * Until a trajectory of the current design is cached, see setTrajectory and warmTrajectory, the design is folded normally,
+     * so a change to the design never stalls the playback to sample it.
+     * @param percent percentage of fold
+     */
+    public void foldCached(float percent) {
+        if (trajectory == null) {
+            fold(percent);
+            return;
+        }
+        int sample = trajectory.getSampleBelow(percent);
+        float percentA = trajectory.getPercent(sample);
+        float percentB = trajectory.getPercent(sample + 1);
+        float blend = FastMath.clamp((percent - percentA) / (percentB - percentA), 0f, 1f);
+        float[] poses = trajectory.getPoses();
+        int rowA = sample * patches.size() * FoldTrajectory.POSE_SIZE;
+        int rowB = rowA + patches.size() * FoldTrajectory.POSE_SIZE;
+        poseVersion++;
+        TempVars vars = TempVars.get();
+        for (int i = 0; i < patches.size(); i++) {
+            int a = rowA + i * FoldTrajectory.POSE_SIZE;
+            int b = rowB + i * FoldTrajectory.POSE_SIZE;
+            PatchNode patch = patches.get(i);
+            patch.angle = poses[a] + (poses[b] - poses[a]) * blend;
+            interpolatePose(poses, a, poses, b, blend, patch.rotation, patch.translation, vars.quat1);
+            //the transform is set, so it is not worked out from the angles again
+            patch.transformVersion = poseVersion;
+        }
+        vars.release();
+        //an interpolated pose is not an exact solution to start the next fold from
+        solvedPercent = Float.NaN;
+        posePercent = percent;
+    }
+    
+    /**
+     * Interpolates the rigid transform of a patch between two samples of a trajectory
+     * @param posesA poses holding the first sample
+     * @param a index of the pose of the patch in the first sample
+     * @param posesB poses holding the second sample
+     * @param b index of the pose of the patch in the second sample
+     * @param blend how far the pose is from the first sample to the second, between 0 and 1
+     * @param rotation quaternion to store the rotation in
+     * @param translation vector to store the translation in
+     * @param temp quaternion to use for the second rotation
+     */
+    private static void interpolatePose(float[] posesA, int a, float[] posesB, int b, float blend,
+            Quaternion rotation, Vector3f translation, Quaternion temp) {
+        rotation.set(posesA[a + 1], posesA[a + 2], posesA[a + 3], posesA[a + 4]);
+        temp.set(posesB[b + 1], posesB[b + 2], posesB[b + 3], posesB[b + 4]);
+        rotation.nlerp(temp, blend);
+        translation.set(posesA[a + 5] + (posesB[b + 5] - posesA[a + 5]) * blend,
+                posesA[a + 6] + (posesB[b + 6] - posesA[a + 6]) * blend,
+                posesA[a + 7] + (posesB[b + 7] - posesA[a + 7]) * blend);
+    }
 
     /**
      * Folds the design given a percentage. 1 is folded all the way and 0 is not folded.
-     * Option is given if graphics update is desired
+     * When the pose is kept and the percentage only moved a little since the last fold, the change is applied
+     * on top of the previous pose instead of folding from the unfolded position.
      * @param percent percentage of fold
-     * @param update update graphics of not
+     * @param keep true if the pose is the one shown and can be folded on from, false for phantom patches and predictions
      */
-    private void fold(float percent, boolean update) {
-        if (update) {
+    private void fold(float percent, boolean keep) {
+        boolean incremental = keep && percent != 0f && !Float.isNaN(solvedPercent)
+                && FastMath.abs(percent - solvedPercent) <= MAX_INCREMENTAL_STEP
+                && incrementalFolds < MAX_INCREMENTAL_FOLDS;
+        if (incremental) {
+            rotateBook(percent - solvedPercent);
+            incrementalFolds++;
+            if (!(jointDrift() <= MAX_JOINT_DRIFT)) {
+                incremental = false;
+            }
+        }
+        if (!incremental) {
             reset();
+            rotateBook(percent);
+            incrementalFolds = 0;
         }
+        //the pose can only be reused if it is the one shown, without phantom patches
+        solvedPercent = keep ? percent : Float.NaN;
+        posePercent = percent;
+    }
+    
+    /**
+     * Rotates the front cover by a percentage of a full fold and fixes every joint in order
+     * @param percent percentage to rotate the front cover by
+     */
+    private void rotateBook(float percent) {
         if (percent != 0f) {
-            front.rotate(new Vector3f[]{Vector3f.UNIT_Z.negate(), Vector3f.UNIT_Z}, percent * FastMath.PI, true);
-            back.rotate(new Vector3f[]{Vector3f.UNIT_Z.negate(), Vector3f.UNIT_Z}, 0, true);
-            Queue<JointNode> toUpdateList = new LinkedList<>();
-            for (JointNode joint : joints) {
-                toUpdateList.add(joint);
-            }
-            toUpdateList.remove(bookJoint);
-            while (!toUpdateList.isEmpty()) {
-                JointNode currentJoint = toUpdateList.remove();
-                if (currentJoint.ready()) {
-                    currentJoint.fixJoint();
+            front.rotate(percent * FastMath.PI);
+            for (JointNode joint : getSolvePlan()) {
+                joint.fixJoint();
+            }
+        }
+    }
+    
+    /**
+     * Folds the design from the pose solved for one percentage to another percentage close to it, without updating the graphics.
+     * Folds from the unfolded position instead if the joints drift apart.
+     * @param solved percentage the current pose was solved for
+     * @param percent percentage to fold to
+     */
+    private void refold(float solved, float percent) {
+        rotateBook(percent - solved);
+        if (!(jointDrift() <= MAX_JOINT_DRIFT)) {
+            reset();
+            rotateBook(percent);
+        }
+        posePercent = percent;
+    }
+    
+    /**
+     * Gets the first fold percentage between two percentages where two patches that are not neighbors touch.
+     * The range is folded through in steps of at most 1/64 until a step ends in a collision, and that step is narrowed
+     * down by bisection. Only the ends of the steps are checked, so a contact that starts and stops within one step,
+     * shorter than 1/64 of the fold, is missed; see getCollisionTimeline for every contact.
+     * The search is done on a snapshot, so the pose of this tree is not changed, and like snapshot it has to be called
+     * on the thread that changes the tree.
+     * @param from percentage to start from, clamped to between 0 and 1
+     * @param to percentage to end at, clamped to between 0 and 1, not below from
+     * @return the first percentage with a collision, from itself if the patches already collide there,
+     * -1 if the patches do not touch in the range
+     * @throws IllegalArgumentException if from is above to or either is NaN
+     */
+    public float getFirstContact(float from, float to) {
+        if (!(from <= to)) {
+            throw new IllegalArgumentException("Cannot search for a contact from " + from + " to " + to);
+        }
+        return snapshot().searchFirstContact(FastMath.clamp(from, 0f, 1f), FastMath.clamp(to, 0f, 1f));
+    }
+    
+    /**
+     * getFirstContact on a snapshot, which is folded through the range
+     * @param from percentage to start from, between 0 and 1
+     * @param to percentage to end at, between 0 and 1, not below from
+     * @return the first percentage with a collision, -1 if the patches do not touch in the range
+     */
+    private float searchFirstContact(float from, float to) {
+        reset();
+        rotateBook(from);
+        posePercent = from;
+        if (hasCollision()) {
+            return from;
+        }
+        float solved = from;
+        int steps = Math.max(1, (int) FastMath.ceil((to - from) / CONTACT_STEP));
+        for (int i = 1; i <= steps; i++) {
+            float percent = from + (to - from) * i / steps;
+            refold(solved, percent);
+            solved = percent;
+            if (hasCollision()) {
+                float low = from + (to - from) * (i - 1) / steps;
+                float high = percent;
+                while (high - low > CONTACT_TOLERANCE) {
+                    float middle = (low + high) / 2f;
+                    refold(solved, middle);
+                    solved = middle;
+                    if (hasCollision()) {
+                        high = middle;
+                    } else {
+                        low = middle;
+                    }
+                }
+                return high;
+            }
+        }
+        return -1f;
+    }
+    
+    /**
+     * Gets every range of fold percentages in which patches that are not neighbors collide, folding the design from open
+     * to closed. Each step is folded on top of the previous one, and the step is sized so no vertex moves much further
+     * than a small distance, so the parts of the fold where patches swing fast are stepped through finely and the rest quickly.
+     * Where a step starts or stops a collision, the change is narrowed down by bisection. A step that neither starts nor
+     * ends in a collision is bisected while patches that are not neighbors are close enough to meet within it, so contacts
+     * shorter than a step are found too, down to contacts shorter than the smallest step, which can still be missed.
+     * Gaps shorter than a step within a collision are not looked for. The design is left at the last percentage solved,
+     * so it should be folded after, or the timeline worked out on a snapshot, which can be done on another thread.
+     * @return the timeline, empty if nothing collides
+     */
+    public CollisionTimeline getCollisionTimeline() {
+        ArrayList<CollisionTimeline.Interval> intervals = new ArrayList<>();
+        reset();
+        float[] last = getAllPoints(null);
+        float[] current = new float[last.length];
+        float solved = 0f;
+        CollisionReport collisions = makeReport(solved);
+        float start = solved;
+        BitSet ids = new BitSet();
+        CollisionReport deepest = null;
+        if (!collisions.isEmpty()) {
+            deepest = addIds(collisions, ids, deepest);
+        }
+        float step = CONTACT_STEP;
+        while (solved < MAX_TRAJECTORY_PERCENT) {
+            float percent = Math.min(solved + step, MAX_TRAJECTORY_PERCENT);
+            refold(solved, percent);
+            getAllPoints(current);
+            float moved = 0f;
+            for (int i = 0; i < current.length; i += 3) {
+                float dx = current[i] - last[i];
+                float dy = current[i + 1] - last[i + 1];
+                float dz = current[i + 2] - last[i + 2];
+                moved = Math.max(moved, dx * dx + dy * dy + dz * dz);
+            }
+            moved = FastMath.sqrt(moved);
+            float[] swap = last;
+            last = current;
+            current = swap;
+            boolean colliding = deepest != null;
+            CollisionReport next = makeReport(percent);
+            if (next.isEmpty() == colliding) {
+                //narrow down where the collision starts or stops, then go back to the end of the step
+                float[] change = narrowChange(solved, percent, colliding);
+                refold(posePercent, percent);
+                if (colliding) {
+                    intervals.add(new CollisionTimeline.Interval(start, change[0], toArray(ids), deepest));
+                    ids.clear();
+                    deepest = null;
                 } else {
-                    toUpdateList.add(currentJoint);
+                    start = change[1];
+                }
+            } else if (!colliding) {
+                //the patches may have met and parted again within the step
+                findShortContacts(solved, percent, moved, intervals);
+                if (posePercent != percent) {
+                    refold(posePercent, percent);
                 }
             }
+            if (!next.isEmpty()) {
+                deepest = addIds(next, ids, deepest);
+            }
+            solved = percent;
+            //grow or shrink the step so the next one moves the vertices about as far as the sweep distance
+            step = moved > 0f ? step * SWEEP_DISTANCE / moved : MAX_SWEEP_STEP;
+            step = FastMath.clamp(step, MIN_SWEEP_STEP, MAX_SWEEP_STEP);
         }
-
-        if (update) {
-            update();
+        if (deepest != null) {
+            intervals.add(new CollisionTimeline.Interval(start, solved, toArray(ids), deepest));
+        }
+        return new CollisionTimeline(intervals);
+    }
+    
+    /**
+     * Narrows down by bisection where patches start or stop colliding between two percentages.
+     * The design is left at the last percentage solved.
+     * @param low percentage to start from
+     * @param high percentage to end at, where the patches collide if they do not at low and the other way around
+     * @param colliding true if the patches collide at low
+     * @return the last percentage found with the state of low and the first found with the state of high, within CONTACT_TOLERANCE
+     */
+    private float[] narrowChange(float low, float high, boolean colliding) {
+        while (high - low > CONTACT_TOLERANCE) {
+            float middle = (low + high) / 2f;
+            refold(posePercent, middle);
+            if (hasCollision() == colliding) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return new float[]{low, high};
+    }
+    
+    /**
+     * Looks for collisions that start and stop between two percentages where the patches do not collide, by bisecting the
+     * range while patches that are not neighbors are close enough to meet within it. The design has to be at high, and is
+     * left at the last percentage solved. Only the first collision found in the range is added.
+     * @param low percentage to start from, where the patches do not collide
+     * @param high percentage to end at, where the patches do not collide
+     * @param moved farthest a vertex moved from low to high
+     * @param intervals list to add the collision to
+     */
+    private void findShortContacts(float low, float high, float moved, ArrayList<CollisionTimeline.Interval> intervals) {
+        //two patches moving towards each other close the gap between them by up to twice as far as a vertex moves
+        if (high - low <= MIN_SWEEP_STEP || !anyClose(2f * moved)) {
+            return;
+        }
+        float middle = (low + high) / 2f;
+        refold(posePercent, middle);
+        CollisionReport collisions = makeReport(middle);
+        if (!collisions.isEmpty()) {
+            float from = narrowChange(low, middle, false)[1];
+            float to = narrowChange(middle, high, true)[0];
+            BitSet ids = new BitSet();
+            CollisionReport deepest = addIds(collisions, ids, null);
+            intervals.add(new CollisionTimeline.Interval(from, to, toArray(ids), deepest));
+            return;
+        }
+        int found = intervals.size();
+        findShortContacts(low, middle, moved / 2f, intervals);
+        if (intervals.size() == found) {
+            refold(posePercent, high);
+            findShortContacts(middle, high, moved / 2f, intervals);
+        }
+    }
+    
+    /**
+     * Adds the patches of a report to a set of ids and keeps the deeper of two reports
+     * @param collisions the report, not empty
+     * @param ids set of ids to add to
+     * @param deepest the deepest report so far, null if none
+     * @return the deeper report
+     */
+    private static CollisionReport addIds(CollisionReport collisions, BitSet ids, CollisionReport deepest) {
+        for (CollisionReport.Pair pair : collisions.getPairs()) {
+            ids.set(pair.getIdA());
+            ids.set(pair.getIdB());
+        }
+        if (deepest == null || collisions.getMaxDepth() > deepest.getMaxDepth()) {
+            return collisions;
+        }
+        return deepest;
+    }
+    
+    /**
+     * Gets the ids in a set, sorted
+     * @param ids the set
+     * @return the ids
+     */
+    private static int[] toArray(BitSet ids) {
+        int[] array = new int[ids.cardinality()];
+        int i = 0;
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            array[i++] = id;
+        }
+        return array;
+    }
+    
+    /**
+     * Gets the current position of the boundaries of all patches, packed one after the other
+     * @param store array to store the points in, null to make a new one
+     * @return store
+     */
+    private float[] getAllPoints(float[] store) {
+        if (store == null) {
+            int length = 0;
+            for (PatchNode patch : patches) {
+                length += patch.getVertexCount() * 3;
+            }
+            store = new float[length];
         }
+        int offset = 0;
+        for (PatchNode patch : patches) {
+            float[] points = patch.getCurrentPoints();
+            System.arraycopy(points, 0, store, offset, points.length);
+            offset += points.length;
+        }
+        return store;
+    }
+    
+    /**
+     * Gets the largest gap between the two sides of a joint in the current pose
+     * @return the largest gap, NaN if a joint could not be fixed
+     */
+    private float jointDrift() {
+        float drift = 0f;
+        for (JointNode joint : getSolvePlan()) {
+            float gap = joint.patchA.getTranslatedJointAxis()[0].distance(joint.patchB.getTranslatedJointAxis()[0]);
+            if (Float.isNaN(gap)) {
+                return gap;
+            }
+            drift = Math.max(drift, gap);
+        }
+        return drift;
+    }
+    
+    /**
+     * Samples the poses of the design for the trajectory cache. The design is folded to evenly spaced percentages,
+     * each on top of the previous one, and wherever the pose interpolated halfway between two samples is further than
+     * MAX_TRAJECTORY_ERROR from the solved pose, a sample is added in between. The design is left at the last percentage
+     * solved, so this is usually done in a snapshot, which can be on another thread, and handed to the tree with setTrajectory.
+     * @return the trajectory, null if the cache is off
+     */
+    public FoldTrajectory sampleTrajectory() {
+        if (trajectorySamples < 2) {
+            return null;
+        }
+        ArrayList<Float> percents = new ArrayList<>();
+        ArrayList<float[]> poses = new ArrayList<>();
+        reset();
+        float solved = 0f;
+        float[] last = getPose();
+        percents.add(solved);
+        poses.add(last);
+        for (int sample = 1; sample < trajectorySamples; sample++) {
+            float lastPercent = percents.get(percents.size() - 1);
+            float percent = MAX_TRAJECTORY_PERCENT * sample / (trajectorySamples - 1);
+            refold(solved, percent);
+            solved = percent;
+            float[] pose = getPose();
+            solved = refineTrajectory(lastPercent, last, percent, pose, solved, percents, poses);
+            percents.add(percent);
+            poses.add(pose);
+            last = pose;
+        }
+        int size = patches.size() * FoldTrajectory.POSE_SIZE;
+        float[] percentArray = new float[percents.size()];
+        float[] poseArray = new float[percents.size() * size];
+        for (int i = 0; i < percentArray.length; i++) {
+            percentArray[i] = percents.get(i);
+            System.arraycopy(poses.get(i), 0, poseArray, i * size, size);
+        }
+        return new FoldTrajectory(structureVersion, patches.size(), percentArray, poseArray);
+    }
+    
+    /**
+     * Adds samples between two samples, in order, until the pose interpolated halfway between each pair of samples
+     * is close enough to the solved pose
+     * @param low percentage of the first sample
+     * @param lowPose pose of the first sample
+     * @param high percentage of the second sample
+     * @param highPose pose of the second sample
+     * @param solved percentage the current pose was solved for
+     * @param percents list to add the percentages of the new samples to
+     * @param poses list to add the poses of the new samples to
+     * @return percentage the current pose was solved for after the samples were added
+     */
+    private float refineTrajectory(float low, float[] lowPose, float high, float[] highPose, float solved,
+            ArrayList<Float> percents, ArrayList<float[]> poses) {
+        if (high - low <= MIN_TRAJECTORY_STEP) {
+            return solved;
+        }
+        float middle = (low + high) / 2f;
+        refold(solved, middle);
+        solved = middle;
+        if (interpolationError(lowPose, highPose) <= MAX_TRAJECTORY_ERROR) {
+            return solved;
+        }
+        float[] middlePose = getPose();
+        solved = refineTrajectory(low, lowPose, middle, middlePose, solved, percents, poses);
+        percents.add(middle);
+        poses.add(middlePose);
+        return refineTrajectory(middle, middlePose, high, highPose, solved, percents, poses);
     }
     
     /**
-     * Get the axis Between two Geometry
-     * @param geomA Geometry A
-     * @param geomB Geometry B
-     * @return the axis between the two geometries
+     * Gets how far the vertices of the pose interpolated halfway between two samples are from the current pose
+     * @param poseA pose of the first sample
+     * @param poseB pose of the second sample
+     * @return largest distance of a vertex from where it is in the current pose
      */
-    public Vector3f[] axisBetween(Geometry geomA, Geometry geomB) {
-        PatchNode patchA = geomPatchMap.get(geomA);
-        PatchNode patchB = geomPatchMap.get(geomB);
+    private float interpolationError(float[] poseA, float[] poseB) {
+        float error = 0f;
+        TempVars vars = TempVars.get();
+        for (int i = 0; i < patches.size(); i++) {
+            PatchNode patch = patches.get(i);
+            int index = i * FoldTrajectory.POSE_SIZE;
+            interpolatePose(poseA, index, poseB, index, 0.5f, vars.quat1, vars.vect1, vars.quat2);
+            float[] current = patch.getCurrentPoints();
+            for (int j = 0; j < current.length; j += 3) {
+                vars.quat1.mult(vars.vect2.set(patch.points[j], patch.points[j + 1], patch.points[j + 2]), vars.vect3).addLocal(vars.vect1);
+                float dx = vars.vect3.x - current[j];
+                float dy = vars.vect3.y - current[j + 1];
+                float dz = vars.vect3.z - current[j + 2];
+                error = Math.max(error, dx * dx + dy * dy + dz * dz);
+            }
+        }
+        vars.release();
+        return FastMath.sqrt(error);
+    }
+    
+    /**
+     * Gets the current pose of every patch for the trajectory cache
+     * @return the hinge angle, rotation and translation of every patch, POSE_SIZE floats per patch
+     */
+    private float[] getPose() {
+        float[] pose = new float[patches.size() * FoldTrajectory.POSE_SIZE];
+        for (int i = 0; i < patches.size(); i++) {
+            PatchNode patch = patches.get(i);
+            patch.updateTransform();
+            int index = i * FoldTrajectory.POSE_SIZE;
+            pose[index] = patch.angle;
+            pose[index + 1] = patch.rotation.getX();
+            pose[index + 2] = patch.rotation.getY();
+            pose[index + 3] = patch.rotation.getZ();
+            pose[index + 4] = patch.rotation.getW();
+            pose[index + 5] = patch.translation.x;
+            pose[index + 6] = patch.translation.y;
+            pose[index + 7] = patch.translation.z;
+        }
+        return pose;
+    }
+    
+    /**
+     * Gets the number of changes to the patches and joints so far, so a snapshot can be reused until the structure changes
+     * @return the version of the structure
+     */
+    int getStructureVersion() {
+        return structureVersion;
+    }
+    
+    /**
+     * Called whenever patches or joints are added or removed. The joint order and the trajectory cache have to be
+     * worked out again and the next fold has to start from the unfolded position
+     */
+    private void structureChanged() {
+        structureVersion++;
+        solvePlan = null;
+        solvedPercent = Float.NaN;
+        trajectory = null;
+        sweepOrder = null;
+        report = null;
+        reports.clear();
+    }
+    
+    /**
+     * Gets the order the joints are fixed in when folding. A joint can only be fixed once both of its patches
+     * are in place, meaning the patch is a cover or a child of a cover, or its parent has been rotated by its own joint.
+     * The joints are fixed in rounds over the joints list, each joint in the first round in which both of its patches
+     * are in place when its turn comes, and joints that can never be fixed are left out.
+     * The order only depends on the structure, so it is worked out once and reused until a joint is added or removed.
+     * @return the joints in the order they should be fixed
+     */
+    ArrayList<JointNode> getSolvePlan() {
+        if (solvePlan == null) {
+            HashMap<JointNode, Integer> positions = new HashMap<>();
+            for (int i = 0; i < joints.size(); i++) {
+                positions.put(joints.get(i), i);
+            }
+            final int[] rounds = new int[joints.size()];
+            Arrays.fill(rounds, UNPLANNED);
+            ArrayList<Integer> order = new ArrayList<>();
+            for (int i = 0; i < rounds.length; i++) {
+                //the covers are rotated directly by fold
+                if (joints.get(i) != bookJoint && getRound(i, positions, rounds) != UNREACHABLE) {
+                    order.add(i);
+                }
+            }
+            Collections.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return rounds[a] != rounds[b] ? Integer.compare(rounds[a], rounds[b]) : Integer.compare(a, b);
+                }
+            });
+            solvePlan = new ArrayList<>(order.size());
+            for (int position : order) {
+                solvePlan.add(joints.get(position));
+            }
+        }
+        return solvePlan;
+    }
+    
+    /**
+     * Gets the round over the joints list in which a joint is fixed. A patch that is not a cover or a child of one
+     * is in place once the joint of its parent is fixed, which is in the same round if that joint comes earlier
+     * in the list and in the next round otherwise
+     * @param position position of the joint in the joints list
+     * @param positions position of every joint in the joints list
+     * @param rounds rounds worked out so far, UNPLANNED for joints not worked out yet
+     * @return the round, UNREACHABLE if the joint can never be fixed
+     */
+    private int getRound(int position, HashMap<JointNode, Integer> positions, int[] rounds) {
+        if (rounds[position] != UNPLANNED) {
+            return rounds[position];
+        }
+        //a joint waiting on itself is never fixed
+        rounds[position] = UNREACHABLE;
+        JointNode joint = joints.get(position);
+        int round = 0;
+        for (PatchNode patch : new PatchNode[]{joint.patchA, joint.patchB}) {
+            if (patch == front || patch == back || patch.parent == front || patch.parent == back) {
+                continue;
+            }
+            Integer parentPosition = patch.parent == null || patch.parent.joint == null ? null : positions.get(patch.parent.joint);
+            if (parentPosition == null || getRound(parentPosition, positions, rounds) == UNREACHABLE) {
+                return UNREACHABLE;
+            }
+            round = Math.max(round, parentPosition > position ? rounds[parentPosition] + 1 : rounds[parentPosition]);
+        }
+        rounds[position] = round;
+        return round;
+    }
 
+    /**
+     * Get the axis Between two patches
+     * @param patchA patch A
+     * @param patchB patch B
+     * @return the axis between the two patches
+     */
+    public Vector3f[] axisBetween(PatchNode patchA, PatchNode patchB) {
         if ((patchA.equals(front) && patchB.equals(back)) || (patchA.equals(back) && patchB.equals(front))) {
             return new Vector3f[]{new Vector3f(0f, 0f, -height / 2f), new Vector3f(0f, 0f, height / 2f)};
         }
@@ -264,33 +1353,61 @@ public class PopUpBookTree {
     }
 
     /**
-     * Checks if two geometry is patches that are neighbors
-     * @param geomA geometry A
-     * @param geomB geometry B
+     * Checks if two patches are neighbors
+     * @param patchA patch A
+     * @param patchB patch B
      * @return true if they are neighbors, false otherwise.
      */
-    public boolean isNeighbor(Geometry geomA, Geometry geomB) {
-        if (geomA == null || geomB == null) {
+    public boolean isNeighbor(PatchNode patchA, PatchNode patchB) {
+        if (patchA == null || patchB == null) {
             return false;
         }
-        return geomPatchMap.get(geomB).isNeighbor(geomPatchMap.get(geomA));
+        return patchB.isNeighbor(patchA);
     }
 
     /**
-     * Attatch a point on a geometry. And get the position of the point when the design is folded 
-     * @param parent geometry to attach point to
-     * @param point geometry position to attatch
+     * Attatch a point on a patch. And get the position of the point when the design is folded.
+     * The design is folded in a snapshot, so the pose of this tree does not change
+     * @param parent patch to attach point to
+     * @param point position to attatch
      * @param percent percentage of fold
      * @return the position of the point when design is folded
      */
-    public Vector3f predictWhenFold(Geometry parent, Vector3f point, float percent) {
-        reset();
-        point = point.clone();
-        ArrayList<Vector3f> pointWrapper = new ArrayList();
-        pointWrapper.add(point);
-        geomPatchMap.get(parent).attatched = pointWrapper;
-        fold(percent, false);
-        return point;
+    public Vector3f predictWhenFold(PatchNode parent, Vector3f point, float percent) {
+        return predictWhenFold(new PatchNode[]{parent}, new Vector3f[]{point}, new float[]{percent})[0];
+    }
+
+    /**
+     * Attatch many points on patches, and get the position of every point when the design is folded.
+     * The points are grouped by percentage, so the design is only folded once for every distinct percentage.
+     * The design is folded in a snapshot, so the pose of this tree does not change.
+     * @param parents patch to attach each point to
+     * @param points position of each point to attatch
+     * @param percents percentage of fold for each point
+     * @return the position of each point when design is folded, in the order of the points
+     */
+    public Vector3f[] predictWhenFold(PatchNode[] parents, Vector3f[] points, final float[] percents) {
+        Integer[] order = new Integer[points.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Float.compare(percents[a], percents[b]);
+            }
+        });
+        PopUpBookTree sandbox = snapshot();
+        Vector3f[] predicted = new Vector3f[points.length];
+        for (int i = 0; i < order.length; i++) {
+            int query = order[i];
+            if (i == 0 || percents[query] != percents[order[i - 1]]) {
+                sandbox.reset();
+                sandbox.fold(percents[query], false);
+            }
+            predicted[query] = sandbox.getCopy(parents[query]).toCurrent(points[query], new Vector3f());
+        }
+        return predicted;
     }
 
     /**
@@ -306,11 +1423,35 @@ public class PopUpBookTree {
      * @param jointB1 joint point 1 between patch A and patch B on patch B
      * @param jointB2 joint point 2 between patch A and patch B on patch B
      * @param type type of joint
-     * @return pair of vertices list representing the maximum area of patch A and patch B
+     * @return pair of vertices list representing the maximum area of patch A and patch B, null if the patches leave the page
      */
-    public ArrayList<ArrayList<Vector3f>> getBoundarys(Geometry parentA, Geometry parentB,
+    public ArrayList<ArrayList<Vector3f>> getBoundarys(PatchNode parentA, PatchNode parentB,
             Vector3f axisA1, Vector3f axisA2, Vector3f axisB1, Vector3f axisB2,
             Vector3f jointA1, Vector3f jointA2, Vector3f jointB1, Vector3f jointB2, String type) {
+        //the phantom patches are added to a snapshot that is thrown away after, so this tree is never changed
+        return snapshot().previewBoundarys(parentA, parentB, axisA1, axisA2, axisB1, axisB2, jointA1, jointA2, jointB1, jointB2, type);
+    }
+    
+    /**
+     * getBoundarys on a snapshot, which gets the phantom patches of the joint added to it
+     * @param parentA parent A, in this snapshot or in the tree it was taken from
+     * @param parentB parent B, in this snapshot or in the tree it was taken from
+     * @param axisA1 joint point 1 between patch A and parent A
+     * @param axisA2 joint point 2 between patch A and parent A
+     * @param axisB1 joint point 1 between patch B and parent B
+     * @param axisB2 joint point 2 between patch B and parent B
+     * @param jointA1 joint point 1 between patch A and patch B on patch A
+     * @param jointA2 joint point 2 between patch A and patch B on patch A
+     * @param jointB1 joint point 1 between patch A and patch B on patch B
+     * @param jointB2 joint point 2 between patch A and patch B on patch B
+     * @param type type of joint
+     * @return pair of vertices list representing the maximum area of patch A and patch B, null if the patches leave the page
+     */
+    private ArrayList<ArrayList<Vector3f>> previewBoundarys(PatchNode parentA, PatchNode parentB,
+            Vector3f axisA1, Vector3f axisA2, Vector3f axisB1, Vector3f axisB2,
+            Vector3f jointA1, Vector3f jointA2, Vector3f jointB1, Vector3f jointB2, String type) {
+        parentA = getCopy(parentA);
+        parentB = getCopy(parentB);
         reset();
         ArrayList<ArrayList<Vector3f>> returnArray = new ArrayList();
         
@@ -332,6 +1473,7 @@ public class PopUpBookTree {
                 patchA.joint = joint;
                 patchB.joint = joint;
                 joints.add(joint);
+                structureChanged();
                 fold(1f - 0.001f, false);
 
                 ArrayList<Vector3f> boundaryA = new ArrayList();
@@ -339,32 +1481,15 @@ public class PopUpBookTree {
                 returnArray.add(boundaryA);
                 returnArray.add(boundaryB);
 
-                Vector3f center = new Vector3f();
-                center.set(width / 2, 0, 0);
-                Geometry patchBox = new Geometry("Box", new Box(center, width / 2, 0.5f, height / 2));
-                Node temp = new Node("temp");
-                temp.attachChild(patchBox);
-                CollisionResults results = new CollisionResults();
                 try {
-                    temp.collideWith(new Ray(patchA.translatedBoundary[1], patchA.translatedBoundary[0].subtract(patchA.translatedBoundary[1]).normalize()), results);
-                    boundaryA.add(results.getFarthestCollision().getContactPoint());
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchB.translatedBoundary[1], patchB.translatedBoundary[0].subtract(patchB.translatedBoundary[1]).normalize()), results);
-                    boundaryB.add(results.getFarthestCollision().getContactPoint());
-                    results.clear();
-                    boundaryA.add(patchA.translatedBoundary[1]);
-                    boundaryB.add(patchB.translatedBoundary[1]);
-
-                    temp.collideWith(new Ray(patchA.translatedBoundary[1], patchA.translatedBoundary[2].subtract(patchA.translatedBoundary[1]).normalize()), results);
-                    boundaryA.add(results.getFarthestCollision().getContactPoint());
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchB.translatedBoundary[1], patchB.translatedBoundary[2].subtract(patchB.translatedBoundary[1]).normalize()), results);
-                    boundaryB.add(results.getFarthestCollision().getContactPoint());
-                    results.clear();
-                } catch (Exception e) {
-                    joints.remove(joints.size() - 1);
+                    boundaryA.add(pageExit(patchA.getTranslatedBoundary()[1], patchA.getTranslatedBoundary()[0]));
+                    boundaryB.add(pageExit(patchB.getTranslatedBoundary()[1], patchB.getTranslatedBoundary()[0]));
+                    boundaryA.add(patchA.getTranslatedBoundary()[1]);
+                    boundaryB.add(patchB.getTranslatedBoundary()[1]);
+
+                    boundaryA.add(pageExit(patchA.getTranslatedBoundary()[1], patchA.getTranslatedBoundary()[2]));
+                    boundaryB.add(pageExit(patchB.getTranslatedBoundary()[1], patchB.getTranslatedBoundary()[2]));
+                } catch (IllegalStateException e) {
                     return null;
                 }
 
@@ -410,7 +1535,7 @@ public class PopUpBookTree {
                     Vector3f u = original.get(0).subtract(original.get(1)).normalize();
                     float angle = u.angleBetween(v);
                     for (Vector3f point : boundary) {
-                        point.set(Util.rotatePoint(point, original.get(1), original.get(1).add(u.cross(v)), angle));
+                        Util.rotatePoint(point, original.get(1), original.get(1).add(u.cross(v)), angle, point);
                     }
                     
                     angle = (u.cross(boundary.get(2).subtract(original.get(1))).normalize()).angleBetween(
@@ -421,15 +1546,11 @@ public class PopUpBookTree {
                     }
                     if (FastMath.abs(angle) > FastMath.FLT_EPSILON) {
                         for (Vector3f point : boundary) {
-                            point.set(Util.rotatePoint(point, boundary.get(0), boundary.get(1), angle));
+                            Util.rotatePoint(point, boundary.get(0), boundary.get(1), angle, point);
                         }
                     }
                     original = pointsB;
                 }
-                geomPatchMap.get(parentA).next.remove(patchA);
-                geomPatchMap.get(parentB).next.remove(patchB);
-
-                joints.remove(joint);
                 break;
             }
             case "D2Joint": {
@@ -454,67 +1575,50 @@ public class PopUpBookTree {
                 patchA.joint = joint;
                 patchB.joint = joint;
                 joints.add(joint);
+                structureChanged();
                 fold(0.999f, false);
 
                 ArrayList<Vector3f> boundaryA = new ArrayList();
                 ArrayList<Vector3f> boundaryB = new ArrayList();
                 returnArray.add(boundaryA);
                 returnArray.add(boundaryB);
-                Vector3f center = new Vector3f();
-                center.set(width / 2, 0, 0);
-                Geometry patchBox = new Geometry("Box", new Box(center, width / 2, 0.5f, height / 2));
-                Node temp = new Node("temp");
-                temp.attachChild(patchBox);
-                CollisionResults results = new CollisionResults();
+                Vector3f contact;
                 try {
-                    temp.collideWith(new Ray(patchA.translatedBoundary[1], patchA.translatedBoundary[0].subtract(patchA.translatedBoundary[1])), results);
-                    patchA.translatedBoundary[0].set(results.getFarthestCollision().getContactPoint());
-                    boundaryA.add(pointsA.get(1).add(pointsA.get(0).subtract(pointsA.get(1)).normalize().mult(patchA.translatedBoundary[1].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchA.translatedBoundary[0], patchA.translatedBoundary[1].subtract(patchA.translatedBoundary[0])), results);
-                    patchA.translatedBoundary[1].set(results.getFarthestCollision().getContactPoint());
-                    boundaryA.add(boundaryA.get(0).add(pointsA.get(1).subtract(boundaryA.get(0)).normalize().mult(patchA.translatedBoundary[0].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchA.translatedBoundary[3], patchA.translatedBoundary[2].subtract(patchA.translatedBoundary[3])), results);
-                    patchA.translatedBoundary[2].set(results.getFarthestCollision().getContactPoint());
-                    boundaryA.add(pointsA.get(3).add(pointsA.get(2).subtract(pointsA.get(3)).normalize().mult(patchA.translatedBoundary[3].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchA.translatedBoundary[2], patchA.translatedBoundary[3].subtract(patchA.translatedBoundary[2])), results);
-                    patchA.translatedBoundary[3].set(results.getFarthestCollision().getContactPoint());
-                    boundaryA.add(boundaryA.get(2).add(pointsA.get(3).subtract(boundaryA.get(2)).normalize().mult(patchA.translatedBoundary[2].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchB.translatedBoundary[1], patchB.translatedBoundary[0].subtract(patchB.translatedBoundary[1])), results);
-                    patchB.translatedBoundary[0].set(results.getFarthestCollision().getContactPoint());
-                    boundaryB.add(pointsB.get(1).add(pointsB.get(0).subtract(pointsB.get(1)).normalize().mult(patchB.translatedBoundary[1].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchB.translatedBoundary[0], patchB.translatedBoundary[1].subtract(patchB.translatedBoundary[0])), results);
-                    patchB.translatedBoundary[1].set(results.getFarthestCollision().getContactPoint());
-                    boundaryB.add(boundaryB.get(0).add(pointsB.get(1).subtract(boundaryB.get(0)).normalize().mult(patchB.translatedBoundary[0].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchB.translatedBoundary[3], patchB.translatedBoundary[2].subtract(patchB.translatedBoundary[3])), results);
-                    patchB.translatedBoundary[2].set(results.getFarthestCollision().getContactPoint());
-                    boundaryB.add(pointsB.get(3).add(pointsB.get(2).subtract(pointsB.get(3)).normalize().mult(patchB.translatedBoundary[3].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                    temp.collideWith(new Ray(patchB.translatedBoundary[2], patchB.translatedBoundary[3].subtract(patchB.translatedBoundary[2])), results);
-                    patchB.translatedBoundary[3].set(results.getFarthestCollision().getContactPoint());
-                    boundaryB.add(boundaryB.get(2).add(pointsB.get(3).subtract(boundaryB.get(2)).normalize().mult(patchB.translatedBoundary[2].distance(results.getFarthestCollision().getContactPoint()))));
-                    results.clear();
-
-                } catch (Exception e) {
-                    joints.remove(joint);
+                    contact = pageExit(patchA.getTranslatedBoundary()[1], patchA.getTranslatedBoundary()[0]);
+                    patchA.getTranslatedBoundary()[0].set(contact);
+                    boundaryA.add(pointsA.get(1).add(pointsA.get(0).subtract(pointsA.get(1)).normalize().mult(patchA.getTranslatedBoundary()[1].distance(contact))));
+
+                    contact = pageExit(patchA.getTranslatedBoundary()[0], patchA.getTranslatedBoundary()[1]);
+                    patchA.getTranslatedBoundary()[1].set(contact);
+                    boundaryA.add(boundaryA.get(0).add(pointsA.get(1).subtract(boundaryA.get(0)).normalize().mult(patchA.getTranslatedBoundary()[0].distance(contact))));
+
+                    contact = pageExit(patchA.getTranslatedBoundary()[3], patchA.getTranslatedBoundary()[2]);
+                    patchA.getTranslatedBoundary()[2].set(contact);
+                    boundaryA.add(pointsA.get(3).add(pointsA.get(2).subtract(pointsA.get(3)).normalize().mult(patchA.getTranslatedBoundary()[3].distance(contact))));
+
+                    contact = pageExit(patchA.getTranslatedBoundary()[2], patchA.getTranslatedBoundary()[3]);
+                    patchA.getTranslatedBoundary()[3].set(contact);
+                    boundaryA.add(boundaryA.get(2).add(pointsA.get(3).subtract(boundaryA.get(2)).normalize().mult(patchA.getTranslatedBoundary()[2].distance(contact))));
+
+                    contact = pageExit(patchB.getTranslatedBoundary()[1], patchB.getTranslatedBoundary()[0]);
+                    patchB.getTranslatedBoundary()[0].set(contact);
+                    boundaryB.add(pointsB.get(1).add(pointsB.get(0).subtract(pointsB.get(1)).normalize().mult(patchB.getTranslatedBoundary()[1].distance(contact))));
+
+                    contact = pageExit(patchB.getTranslatedBoundary()[0], patchB.getTranslatedBoundary()[1]);
+                    patchB.getTranslatedBoundary()[1].set(contact);
+                    boundaryB.add(boundaryB.get(0).add(pointsB.get(1).subtract(boundaryB.get(0)).normalize().mult(patchB.getTranslatedBoundary()[0].distance(contact))));
+
+                    contact = pageExit(patchB.getTranslatedBoundary()[3], patchB.getTranslatedBoundary()[2]);
+                    patchB.getTranslatedBoundary()[2].set(contact);
+                    boundaryB.add(pointsB.get(3).add(pointsB.get(2).subtract(pointsB.get(3)).normalize().mult(patchB.getTranslatedBoundary()[3].distance(contact))));
+
+                    contact = pageExit(patchB.getTranslatedBoundary()[2], patchB.getTranslatedBoundary()[3]);
+                    patchB.getTranslatedBoundary()[3].set(contact);
+                    boundaryB.add(boundaryB.get(2).add(pointsB.get(3).subtract(boundaryB.get(2)).normalize().mult(patchB.getTranslatedBoundary()[2].distance(contact))));
+                } catch (IllegalStateException e) {
                     return null;
                 }
 
-                geomPatchMap.get(parentA).next.remove(patchA);
-                geomPatchMap.get(parentB).next.remove(patchB);
-                joints.remove(joint);
                 break;
             }
             default:
@@ -525,103 +1629,108 @@ public class PopUpBookTree {
     }
 
     /**
-     * reset the patches and joints to default position, meaning unfold position
+     * Get the point where a ray from start through a second point leaves the
+     * slab around the page.
+     * @param start start of the ray
+     * @param through point the ray passes through
+     * @return the exit point
+     * @throws IllegalStateException if the ray misses the page
      */
-    public void reset() {
-        for (PatchNode patch : geomPatchMap.values()) {
-            patch.reset();
-        }
-        for (JointNode joint : joints) {
-            joint.reset();
+    private Vector3f pageExit(Vector3f start, Vector3f through) {
+        Vector3f exit = new Vector3f();
+        TempVars vars = TempVars.get();
+        boolean hit = Util.rayBoxExit(start, through.subtract(start, vars.vect1), pageMin, pageMax, exit);
+        vars.release();
+        if (!hit) {
+            throw new IllegalStateException("Ray does not reach the page");
         }
+        return exit;
     }
+
     /**
-     * updates the graphics of the program
+     * reset the patches and joints to default position, meaning unfold position
      */
-    void update() {
-        app.lines.detachAllChildren();
-        Material lineMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
-        lineMaterial.setColor("Color", ColorRGBA.Black);
-
-        for (PatchNode patch : geomPatchMap.values()) {
-            patch.geometry.getMesh().getBuffer(VertexBuffer.Type.Position).updateData(BufferUtils.createFloatBuffer(patch.translatedBuffer));
-            patch.geometry.getMesh().createCollisionData();
-            patch.geometry.updateModelBound();
-            for (int i = 0; i < patch.translatedBoundary.length; i++) {
-                Geometry line = new Geometry("Line", new Cylinder());
-                line.setMaterial(lineMaterial);
-                line.setLocalTranslation(patch.translatedBoundary[i].add(patch.translatedBoundary[(i + 1) % patch.translatedBoundary.length]).divide(2));
-                ((Cylinder) line.getMesh()).updateGeometry(3, 3, 0.01f, 0.01f, patch.translatedBoundary[i].distance(patch.translatedBoundary[(i + 1) % patch.translatedBoundary.length]), false, false);
-                line.lookAt(patch.translatedBoundary[i], new Vector3f(0, 1, 0));
-                app.lines.attachChild(line);
-            }
+    public void reset() {
+        solvedPercent = Float.NaN;
+        posePercent = 0f;
+        for (PatchNode patch : patches) {
+            patch.reset();
         }
     }
     
     /**
-     * PatchNode class the the PopupbookTree class uses to represent patches
+     * PatchNode class the the PopupbookTree class uses to represent patches.
+     * A patch only stores how far it is rotated around its own axis. Its position in the world is that rotation
+     * concatenated with the transform of its parent, and the vertices are only transformed when they are needed.
+     * The vertices are kept packed in float arrays, x, y and z of each vertex one after the other, so folding and
+     * collision checks do not go through a Vector3f per vertex.
      */
     public class PatchNode {
-        public Geometry geometry;
         public ArrayList<PatchNode> next;
         public PatchNode parent;
         public JointNode joint;
         public Vector3f[] axis;
         public Vector3f[] boundary;
+        //boundary in the unfolded and in the current position, packed
+        private final float[] points;
+        private final float[] currentPoints;
+        //current boundary as vectors, only made when asked for
         private Vector3f[] translatedBoundary;
-        private VertexBuffer originalBuffer;
-        private Vector3f[] translatedBuffer;
         private Vector3f[] translatedAxis;
-        private boolean ready;
+        private Vector3f[] translatedJointAxis;
         
-        private ArrayList<Vector3f> attatched;
+        //radian the patch is rotated around its axis, relative to its parent
+        private float angle;
+        //rigid transform from the unfolded position to the current position
+        private final Quaternion rotation = new Quaternion();
+        private final Vector3f translation = new Vector3f();
+        //pose version the transform and the translated points were computed for
+        private int transformVersion = -1;
+        private int pointsVersion = -1;
+        private int boundaryVersion = -1;
+        //boundary flattened into its plane, unfolded and in the current position, only made when asked for
+        private BoundaryFrame frame;
+        private BoundaryFrame currentFrame;
+        private int frameVersion = -1;
+        //index of the patch in the collision checks and the indices of the patches it is not checked against
+        private int id;
+        private BitSet excluded;
+        //bounding box of the current boundary, the minimum x, y, z followed by the maximum x, y, z
+        private final float[] bounds = new float[6];
 
         /**
-         * Constructor of the PatchNode Class
-         * @param prev parent to the patch
-         * @param geometry the geometry representing the patch
+         * Constructor of the PatchNode Class. Patches that are not added to the tree are phantom patches,
+         * which are only used for computations.
+         * @param prev parent to the patch, null for a cover
          * @param axis the axis between the patch and its parent
-         * @param boundary the boundary around the geometry 
+         * @param boundary the boundary around the patch 
          */
-        private PatchNode(Geometry prev, Geometry geometry, Vector3f[] axis, Vector3f[] boundary) {
+        private PatchNode(PatchNode prev, Vector3f[] axis, Vector3f[] boundary) {
             this.next = new ArrayList<>();
             this.joint = null;
-            this.geometry = geometry;
             this.axis = axis;
-            translatedAxis = new Vector3f[2];
-            translatedAxis[0] = axis[0].clone();
-            translatedAxis[1] = axis[1].clone();
-
-            originalBuffer = this.geometry.getMesh().getBuffer(VertexBuffer.Type.Position).clone();
-            translatedBuffer = BufferUtils.getVector3Array((FloatBuffer) originalBuffer.clone().getData());
+            translatedAxis = new Vector3f[]{axis[0].clone(), axis[1].clone()};
+            translatedJointAxis = new Vector3f[]{new Vector3f(), new Vector3f()};
             this.boundary = boundary;
-            translatedBoundary = new Vector3f[boundary.length];
+            points = new float[boundary.length * 3];
             for (int i = 0; i < boundary.length; i++) {
-                translatedBoundary[i] = boundary[i].clone();
+                points[i * 3] = boundary[i].x;
+                points[i * 3 + 1] = boundary[i].y;
+                points[i * 3 + 2] = boundary[i].z;
             }
+            currentPoints = points.clone();
             if (prev != null) {
-                geomPatchMap.get(prev).next.add(this);
-                this.parent = geomPatchMap.get(prev);
+                prev.next.add(this);
+                this.parent = prev;
             }
         }
+        
         /**
-         * constructor for the patchNodes for phantom patches. These patches does not render and are only used for computations.
-         * @param prev parent of the patch
-         * @param axis axis between the patch and its parent
-         * @param boundary boundary that describe the patch
+         * Gets the tree the patch belongs to
+         * @return the tree
          */
-        private PatchNode(Geometry prev, Vector3f[] axis, Vector3f[] boundary) {
-            this.axis = axis;
-            translatedAxis = new Vector3f[2];
-            translatedAxis[0] = axis[0].clone();
-            translatedAxis[1] = axis[1].clone();
-            geomPatchMap.get(prev).next.add(this);
-            joint = null;
-            this.boundary = boundary;
-            translatedBoundary = new Vector3f[boundary.length];
-            for (int i = 0; i < boundary.length; i++) {
-                translatedBoundary[i] = boundary[i].clone();
-            }
+        private PopUpBookTree getTree() {
+            return PopUpBookTree.this;
         }
         
         /**
@@ -672,87 +1781,238 @@ public class PopUpBookTree {
          * @param to point "to"
          */
         private void rotateFromTo(Vector3f from, Vector3f to) {
+            Vector3f[] currentAxis = getTranslatedAxis();
             Plane fromPlane = new Plane();
             Plane toPlane = new Plane();
-            fromPlane.setPlanePoints(from, translatedAxis[0], translatedAxis[1]);
-            toPlane.setPlanePoints(to, translatedAxis[0], translatedAxis[1]);
+            fromPlane.setPlanePoints(from, currentAxis[0], currentAxis[1]);
+            toPlane.setPlanePoints(to, currentAxis[0], currentAxis[1]);
             float angle = fromPlane.getNormal().angleBetween(toPlane.getNormal());
-            if (Util.rotatePoint(from, translatedAxis[0], translatedAxis[1], angle).distance(to) > Util.rotatePoint(from, translatedAxis[0], translatedAxis[1], -angle).distance(to)) {
+            TempVars vars = TempVars.get();
+            if (Util.rotatePoint(from, currentAxis[0], currentAxis[1], angle, vars.vect1).distance(to) > Util.rotatePoint(from, currentAxis[0], currentAxis[1], -angle, vars.vect2).distance(to)) {
                 angle = -1 * angle;
             }
-            rotate(angle, true);
+            vars.release();
+            rotate(angle);
         }
         
         /**
-         * Rotate the patch, and all children with left hand rule and a specific radian. 
-         * If ready is true, mark the children of this patch as ready
+         * Rotate the patch, and all children with left hand rule and a specific radian around its own axis.
+         * The children follow because their transform is concatenated with this one.
          * @param radian
-         * @param nextReady 
          */
-        private void rotate(float radian, boolean nextReady) {
-            rotate(translatedAxis, radian, nextReady);
+        private void rotate(float radian) {
+            angle += radian;
+            poseVersion++;
         }
-
-        private void rotate(Vector3f[] axis, float radian) {
-            if (geometry != null) {
-                if (attatched != null) {
-                    for (Vector3f point : attatched) {
-                        point.set(Util.rotatePoint(point, axis[0], axis[1], radian));
-                    }
+        
+        /**
+         * Gets the transform of this patch, recomputing it from the parent's transform if the pose changed
+         */
+        private void updateTransform() {
+            if (transformVersion != poseVersion) {
+                //rotation around the axis, which points from axis[1] to axis[0]
+                Vector3f direction = axis[0].subtract(axis[1]).normalizeLocal();
+                rotation.fromAngleNormalAxis(angle, direction);
+                rotation.mult(axis[1], translation).negateLocal().addLocal(axis[1]);
+                if (parent != null) {
+                    parent.updateTransform();
+                    parent.rotation.mult(translation, translation).addLocal(parent.translation);
+                    rotation.set(parent.rotation.mult(rotation));
                 }
-                for (PatchNode patch : next) {
-                    patch.rotate(axis, radian);
+                transformVersion = poseVersion;
+            }
+        }
+        
+        /**
+         * Transforms a point on the unfolded patch to its current position
+         * @param point point on the unfolded patch
+         * @param store vector to store the result in
+         * @return the current position of the point
+         */
+        Vector3f toCurrent(Vector3f point, Vector3f store) {
+            updateTransform();
+            return rotation.mult(point, store).addLocal(translation);
+        }
+        
+        /**
+         * Transforms packed points on the unfolded patch to their current position
+         * @param source points on the unfolded patch, x, y and z of each point one after the other
+         * @param store array to store the result in, can be the same as source
+         * @return store
+         */
+        float[] toCurrent(float[] source, float[] store) {
+            updateTransform();
+            //rotation matrix of the unit quaternion, worked out once for all points
+            float x = rotation.getX(), y = rotation.getY(), z = rotation.getZ(), w = rotation.getW();
+            float m00 = 1 - 2 * (y * y + z * z), m01 = 2 * (x * y - w * z), m02 = 2 * (x * z + w * y);
+            float m10 = 2 * (x * y + w * z), m11 = 1 - 2 * (x * x + z * z), m12 = 2 * (y * z - w * x);
+            float m20 = 2 * (x * z - w * y), m21 = 2 * (y * z + w * x), m22 = 1 - 2 * (x * x + y * y);
+            for (int i = 0; i + 2 < source.length; i += 3) {
+                float pointX = source[i];
+                float pointY = source[i + 1];
+                float pointZ = source[i + 2];
+                store[i] = m00 * pointX + m01 * pointY + m02 * pointZ + translation.x;
+                store[i + 1] = m10 * pointX + m11 * pointY + m12 * pointZ + translation.y;
+                store[i + 2] = m20 * pointX + m21 * pointY + m22 * pointZ + translation.z;
+            }
+            return store;
+        }
+        
+        /**
+         * Recomputes the current position of the boundary, axis and joint axis if the pose changed
+         */
+        private void updatePoints() {
+            if (pointsVersion != poseVersion) {
+                toCurrent(points, currentPoints);
+                toCurrent(axis[0], translatedAxis[0]);
+                toCurrent(axis[1], translatedAxis[1]);
+                if (joint != null) {
+                    toCurrent(joint.jointAxis[0], translatedJointAxis[0]);
+                    toCurrent(joint.jointAxis[1], translatedJointAxis[1]);
                 }
-                for (Vector3f point : translatedBuffer) {
-                point.set(Util.rotatePoint(point, axis[0], axis[1], radian));
+                pointsVersion = poseVersion;
             }
-                
+        }
+        
+        /**
+         * Gets the number of vertices of the boundary
+         * @return number of vertices
+         */
+        public int getVertexCount() {
+            return boundary.length;
+        }
+        
+        /**
+         * Gets the current position of the boundary, packed
+         * @return x, y and z of each vertex one after the other, not to be changed
+         */
+        float[] getCurrentPoints() {
+            updatePoints();
+            return currentPoints;
+        }
+        
+        /**
+         * Gets the current position of a vertex of the boundary
+         * @param index index of the vertex
+         * @param store vector to store the position in
+         * @return store
+         */
+        public Vector3f getCurrentPoint(int index, Vector3f store) {
+            updatePoints();
+            return store.set(currentPoints[index * 3], currentPoints[index * 3 + 1], currentPoints[index * 3 + 2]);
+        }
+        
+        /**
+         * Gets the current position of the boundary
+         * @return the boundary in its current position
+         */
+        Vector3f[] getTranslatedBoundary() {
+            updatePoints();
+            if (translatedBoundary == null) {
+                translatedBoundary = new Vector3f[boundary.length];
+                for (int i = 0; i < boundary.length; i++) {
+                    translatedBoundary[i] = new Vector3f();
+                }
+                boundaryVersion = -1;
             }
-            for (Vector3f point : translatedBoundary) {
-                    point.set(Util.rotatePoint(point, axis[0], axis[1], radian));
+            if (boundaryVersion != pointsVersion) {
+                for (int i = 0; i < boundary.length; i++) {
+                    getCurrentPoint(i, translatedBoundary[i]);
                 }
-            
-            
-            joint.rotate(this, axis, radian);
-            
-            translatedAxis[0].set(Util.rotatePoint(translatedAxis[0], axis[0], axis[1], radian));
-            translatedAxis[1].set(Util.rotatePoint(translatedAxis[1], axis[0], axis[1], radian));
+                boundaryVersion = pointsVersion;
+            }
+            return translatedBoundary;
         }
-
+        
+        /**
+         * Gets the boundary flattened into its plane, for checking points against the unfolded patch
+         * @return the frame of the boundary, not to be changed
+         */
+        public BoundaryFrame getFrame() {
+            if (frame == null) {
+                frame = new BoundaryFrame(points);
+            }
+            return frame;
+        }
+        
+        /**
+         * Gets the boundary flattened into its plane in the current position. Folding moves the patch rigidly,
+         * so only the plane is moved and the flattened vertices are kept
+         * @return the frame of the current boundary, not to be changed
+         */
+        BoundaryFrame getCurrentFrame() {
+            updatePoints();
+            if (currentFrame == null) {
+                currentFrame = getFrame().copyShape();
+                frameVersion = -1;
+            }
+            if (frameVersion != pointsVersion) {
+                currentFrame.place(frame, rotation, translation);
+                frameVersion = pointsVersion;
+            }
+            return currentFrame;
+        }
+        
+        /**
+         * Gets the current position of the axis between the patch and its parent
+         * @return the axis in its current position
+         */
+        private Vector3f[] getTranslatedAxis() {
+            updatePoints();
+            return translatedAxis;
+        }
+        
+        /**
+         * Gets the current position of the joint axis, as carried by this patch
+         * @return the joint axis in its current position
+         */
+        private Vector3f[] getTranslatedJointAxis() {
+            updatePoints();
+            return translatedJointAxis;
+        }
+        
         /**
-         * rotate patch, and all children, with the left hand rule, a specific radian and a specific axis
-         * @param axis axis to rotate
-         * @param radian radian to rotate
-         * @param nextReady set children as ready or not
+         * Fits the bounding box around the current boundary
          */
-        private void rotate(Vector3f[] axis, float radian, boolean nextReady) {
-            this.ready = true;
-            if (next != null) {
-                for (PatchNode patch : next) {
-                    patch.ready = true;
+        private void updateBounds() {
+            float[] current = getCurrentPoints();
+            bounds[0] = bounds[1] = bounds[2] = Float.POSITIVE_INFINITY;
+            bounds[3] = bounds[4] = bounds[5] = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < current.length; i += 3) {
+                for (int coordinate = 0; coordinate < 3; coordinate++) {
+                    bounds[coordinate] = Math.min(bounds[coordinate], current[i + coordinate] - BOUNDS_MARGIN);
+                    bounds[coordinate + 3] = Math.max(bounds[coordinate + 3], current[i + coordinate] + BOUNDS_MARGIN);
                 }
             }
-
-            rotate(axis, radian);
+        }
+        
+        /**
+         * Checks if the bounding boxes of this patch and another patch overlap
+         * @param patch the other patch
+         * @return true if the boxes overlap
+         */
+        private boolean boundsOverlap(PatchNode patch) {
+            return boundsOverlap(patch, 0f);
+        }
+        
+        /**
+         * Checks if the bounding boxes of this patch and another patch are closer than a distance on every axis
+         * @param patch the other patch
+         * @param margin the distance, 0 to check if the boxes overlap
+         * @return true if the boxes are that close
+         */
+        private boolean boundsOverlap(PatchNode patch, float margin) {
+            return bounds[0] <= patch.bounds[3] + margin && patch.bounds[0] <= bounds[3] + margin
+                    && bounds[1] <= patch.bounds[4] + margin && patch.bounds[1] <= bounds[4] + margin
+                    && bounds[2] <= patch.bounds[5] + margin && patch.bounds[2] <= bounds[5] + margin;
         }
         
         /**
          * reset patch to starting position
          */
         private void reset() {
-            translatedAxis[0].set(axis[0].clone());
-            translatedAxis[1].set(axis[1].clone());
-            attatched = null;
-            ready = false;
-            if(geometry!= null){
-                translatedBuffer = BufferUtils.getVector3Array((FloatBuffer) originalBuffer.clone().getData());
-                translatedBuffer = BufferUtils.getVector3Array((FloatBuffer) originalBuffer.clone().getData());
-            }
-            
-            for (int i = 0; i < boundary.length; i++) {
-                translatedBoundary[i].set(boundary[i]);
-            }
-            
+            angle = 0f;
+            poseVersion++;
         }
     }
     /**
@@ -763,9 +2023,6 @@ public class PopUpBookTree {
         public Vector3f[] jointAxis;
         private PatchNode patchA;
         private PatchNode patchB;
-        private Vector3f[] axisA;
-        private Vector3f[] axisB;
-        private HashMap<PatchNode, Vector3f[]> translatedJointAxis;
         private Plane.Side upSide;
         private Vector3f previousIntersection;
 
@@ -779,32 +2036,16 @@ public class PopUpBookTree {
         private JointNode(PatchNode patchA, PatchNode patchB, Vector3f[] jointAxis, String type) {
             this.type = type;
             this.jointAxis = jointAxis;
-            translatedJointAxis = new HashMap<>();
-            
             
             //store the reference to the patches
             this.patchA = patchA;
             this.patchB = patchB;
             
-            //the joint axis local to patch A and B
-            axisA = new Vector3f[2];
-            axisB = new Vector3f[2];
-            axisA[0] = jointAxis[0].clone();
-            axisA[1] = jointAxis[1].clone();
-            axisB[0] = jointAxis[0].clone();
-            axisB[1] = jointAxis[1].clone();
-            translatedJointAxis.put(patchA, axisA);
-            translatedJointAxis.put(patchB, axisB);
-            
-            
-            
             //store a upSide and previousIntersection to use for reference for picking one from the two intersection point in fix Joint
             Plane plane = new Plane();
-            plane.setPlanePoints(patchA.translatedBoundary[0], patchA.translatedBoundary[1], patchB.translatedBoundary[0]);
-            upSide = plane.whichSide(axisA[0]);
-            previousIntersection = new Vector3f(axisA[0]);
-            
-            
+            plane.setPlanePoints(patchA.boundary[0], patchA.boundary[1], patchB.boundary[0]);
+            upSide = plane.whichSide(jointAxis[0]);
+            previousIntersection = new Vector3f(jointAxis[0]);
         }
         
         /**
@@ -824,67 +2065,46 @@ public class PopUpBookTree {
          * marks the interesection point for reference use
          */
         private void markLastIntersection(){
-            previousIntersection.set(axisA[0]);
-        }
-
-        /**
-         * rotate the intersection points of a patch in this joint, given the patch, rotation axis, and radian
-         * @param patch patch
-         * @param axis rotation axis
-         * @param radian radian
-         */
-        private void rotate(PatchNode patch, Vector3f[] axis, float radian) {
-            if (patch.equals(patchA)) {
-                axisA[0].set(Util.rotatePoint(axisA[0], axis[0], axis[1], radian));
-                axisA[1].set(Util.rotatePoint(axisA[1], axis[0], axis[1], radian));
-            } else {
-                axisB[0].set(Util.rotatePoint(axisB[0], axis[0], axis[1], radian));
-                axisB[1].set(Util.rotatePoint(axisB[1], axis[0], axis[1], radian));
-            }
-        }
-        /**
-         * resets the intersection points to position when fold = 0
-         */
-        private void reset() {
-            axisA[0].set(jointAxis[0].clone());
-            axisA[1].set(jointAxis[1].clone());
-            axisB[0].set(jointAxis[0].clone());
-            axisB[1].set(jointAxis[1].clone());
+            previousIntersection.set(patchA.getTranslatedJointAxis()[0]);
         }
 
         /**
          * Fix a seperated joint by rotation both patches to aligning the intersection points.
          */
         private void fixJoint() {
+            Vector3f[] axisA = patchA.getTranslatedJointAxis();
+            Vector3f[] axisB = patchB.getTranslatedJointAxis();
+            Vector3f[] patchAAxis = patchA.getTranslatedAxis();
+            Vector3f[] patchBAxis = patchB.getTranslatedAxis();
             switch (type) {
                 case "D1Joint": {
                         Plane planeMid = new Plane();
                         Plane planeA = new Plane();
                         float jointLength = jointAxis[0].distance(jointAxis[1]);
 
-                        planeA.setOriginNormal(axisA[1], patchA.translatedAxis[0].subtract(patchA.translatedAxis[1]));
+                        planeA.setOriginNormal(axisA[1], patchAAxis[0].subtract(patchAAxis[1]));
                         Vector3f midPoint = new Vector3f();
 
-                        midPoint = patchA.translatedAxis[0].subtract(patchA.translatedAxis[1]).normalize().cross(
-                                patchB.translatedAxis[0].subtract(patchB.translatedAxis[1]).normalize())
+                        midPoint = patchAAxis[0].subtract(patchAAxis[1]).normalize().cross(
+                                patchBAxis[0].subtract(patchBAxis[1]).normalize())
                                 .normalize().negate();
                         
-                        if (patchA.translatedAxis[0].subtract(patchA.translatedAxis[1]).cross(patchB.translatedAxis[0].subtract(patchB.translatedAxis[1])).distance(Vector3f.ZERO) > FastMath.FLT_EPSILON) {
-                            planeMid.setPlanePoints(patchA.translatedBoundary[0], patchA.translatedBoundary[1], patchB.translatedBoundary[0]);
-                            if (!planeMid.whichSide(midPoint.add(patchA.translatedAxis[1])).equals(upSide)) {
+                        if (patchAAxis[0].subtract(patchAAxis[1]).cross(patchBAxis[0].subtract(patchBAxis[1])).distance(Vector3f.ZERO) > FastMath.FLT_EPSILON) {
+                            planeMid.setPlanePoints(patchA.getTranslatedBoundary()[0], patchA.getTranslatedBoundary()[1], patchB.getTranslatedBoundary()[0]);
+                            if (!planeMid.whichSide(midPoint.add(patchAAxis[1])).equals(upSide)) {
                                 midPoint.negateLocal();
                             }
                         }else{
-                            if(midPoint.add(patchA.translatedAxis[1]).distance(previousIntersection) > midPoint.negate().add(patchA.translatedAxis[1]).distance(previousIntersection)){
+                            if(midPoint.add(patchAAxis[1]).distance(previousIntersection) > midPoint.negate().add(patchAAxis[1]).distance(previousIntersection)){
                                 midPoint.negateLocal();
                             }
                         }
 
-                        Vector3f baseA = Util.closestPointOnLine(patchA.translatedAxis[0], patchA.translatedAxis[0].subtract(patchA.translatedAxis[1]), axisA[0]);
-                        Vector3f midVector = patchA.translatedAxis[0].subtract(patchA.translatedAxis[1]).normalize().add(patchB.translatedAxis[0].subtract(patchB.translatedAxis[1]).normalize()).normalize();
+                        Vector3f baseA = Util.closestPointOnLine(patchAAxis[0], patchAAxis[0].subtract(patchAAxis[1]), axisA[0]);
+                        Vector3f midVector = patchAAxis[0].subtract(patchAAxis[1]).normalize().add(patchBAxis[0].subtract(patchBAxis[1]).normalize()).normalize();
                         Vector3f aVector;
-                        if (baseA.distance(patchA.translatedAxis[0]) < 0.00001) {
-                            aVector = patchA.translatedAxis[0].subtract(axisA[1]).normalize();
+                        if (baseA.distance(patchAAxis[0]) < 0.00001) {
+                            aVector = patchAAxis[0].subtract(axisA[1]).normalize();
                         } else {
                             aVector = baseA.subtract(axisA[1]).normalize();
                         }
@@ -896,61 +2116,36 @@ public class PopUpBookTree {
                         float c = FastMath.sqr(baseLength) - FastMath.sqr(jointLength);
                         float midLength = (-b + FastMath.sqrt((b * b) - (4 * c))) / 2;
                         midPoint = c1.add(midPoint.normalize().mult(midLength));
-                        patchA.rotateFromTo(axisA[0], midPoint);
-                        patchB.rotateFromTo(axisB[0], midPoint);
+                        patchA.rotateFromTo(axisA[0].clone(), midPoint);
+                        patchB.rotateFromTo(patchB.getTranslatedJointAxis()[0].clone(), midPoint);
                     
                     markLastIntersection();
                     break;
                 }
                 case "D2Joint": {
-                    Vector3f c1 = patchA.translatedAxis[0];
-                    Vector3f c2 = patchB.translatedAxis[0];
+                    Vector3f c1 = patchAAxis[0].clone();
+                    Vector3f c2 = patchBAxis[0].clone();
                     float r1 = axisA[0].distance(c1);
                     float r2 = axisB[0].distance(c2);
                     float d = c1.distance(c2);
-                    if (d > (r1 + r2) + 0.00001 || d < FastMath.abs(r1 - r2) - 0.00001 || d < FastMath.FLT_EPSILON) {
-                        if (d > (r1 + r2)) {
-                            System.out.println("case1");
-                        }
-                        if (d < FastMath.abs(r1 - r2) - 0.00001) {
-                            System.out.println("case2");
-                            System.out.println("d = " + d);
-                            System.out.println("r1 = " + r1);
-                            System.out.println("r2 = " + r2);
-                            System.out.println("r1-r2 = " + (r1 - r2));
-                        }
-                        if (d < FastMath.FLT_EPSILON) {
-                            System.out.println("case3");
-                        }
-                        System.out.println(c1);
-                        System.out.println(c2);
-                        System.out.println("fail");
-                    }
                     float a = (r1 * r1 - r2 * r2 + d * d) / (2 * d);
                     float h = FastMath.sqrt(r1 * r1 - a * a);
                     Vector3f v = c2.subtract(c1).normalize();
                     Vector3f w = axisB[0].subtract(axisB[1]).cross(v).normalize();
                     Plane plane = new Plane();
-                    plane.setPlanePoints(patchA.translatedBoundary[0], patchA.translatedBoundary[1], patchB.translatedBoundary[0]);
+                    plane.setPlanePoints(patchA.getTranslatedBoundary()[0], patchA.getTranslatedBoundary()[1], patchB.getTranslatedBoundary()[0]);
                     Vector3f midPoint = c1.add(v.mult(a)).add(w.mult(h));
                     if (!plane.whichSide(midPoint).equals(upSide)) {
                         midPoint = c1.add(v.mult(a)).subtract(w.mult(h));
                     }
-                    patchA.rotateFromTo(axisA[0], midPoint);
-                    patchB.rotateFromTo(axisB[0], midPoint);
+                    patchA.rotateFromTo(axisA[0].clone(), midPoint);
+                    patchB.rotateFromTo(patchB.getTranslatedJointAxis()[0].clone(), midPoint);
                     break;
                 }
                 default:
                     break;
             }
         }
-        /**
-         * checks if a joint is ready, meaning both its patch is finalized
-         * @return true if ready, false otherwise.
-         */
-        private boolean ready() {
-            return patchA.ready && patchB.ready;
-        }
 
     }
 }
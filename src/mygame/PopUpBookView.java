@@ -0,0 +1,620 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.collision.CollisionResult;
+import com.jme3.collision.CollisionResults;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.TempVars;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Shows a PopUpBookTree in the scene. Every patch in the tree gets a geometry, the edges of all patches are drawn
+ * as thin tubes in one crease mesh, and both are moved to the pose of the tree whenever it is folded.
+ * In merged mode the patch geometries are not attached, and all patches are drawn as one mesh instead. The patch
+ * geometries are then only handles for selecting and marking patches.
+ * @author Evans
+ */
+public class PopUpBookView {
+    //Hashmap mapping the geometry with its patchNode;
+    public HashMap<Geometry, PopUpBookTree.PatchNode> geomPatchMap = new HashMap<>();
+    //Hashmap mapping the patchNode with the graphics showing it
+    private HashMap<PopUpBookTree.PatchNode, PatchGraphics> patchGraphicsMap = new HashMap<>();
+
+    private PopUpBookTree tree;
+    private PopUpBook app;
+    //all crease lines in one mesh, a thin tube along every boundary edge
+    private Geometry lines;
+    //radius of the crease tubes, in world units so the lines get thinner further away like the paper
+    private static final float LINE_RADIUS = 0.01f;
+    //number of sides of a crease tube
+    private static final int LINE_SIDES = 3;
+
+    //tint of marked patches in merged mode
+    private static final ColorRGBA MARK_COLOR = new ColorRGBA(1f, 0.55f, 0.4f, 1f);
+    //all patches in one mesh, null when not in merged mode
+    private Geometry merged;
+    private boolean mergedMode = false;
+    //true when patches were added or deleted since the merged mesh was made
+    private boolean mergedDirty = true;
+    //first triangle of every patch in the merged mesh, in increasing order, and the patch it belongs to
+    private int[] triangleStarts = new int[0];
+    private PopUpBookTree.PatchNode[] triangleOwners = new PopUpBookTree.PatchNode[0];
+
+    /**
+     * Constructor for the PopUpBookView. Creates the tree with the front and back cover given width and height
+     * @param width
+     * @param height
+     * @param app reference to the PopUpBook object
+     */
+    PopUpBookView(float width, float height, PopUpBook app) {
+        this.app = app;
+        tree = new PopUpBookTree(width, height);
+        for (PopUpBookTree.PatchNode patch : tree.getPatches()) {
+            addGeometry(patch);
+        }
+    }
+
+    /**
+     * returns the tree shown
+     * @return the tree
+     */
+    public PopUpBookTree getTree() {
+        return tree;
+    }
+
+    /**
+     * returns the geometry of a patch
+     * @param patch the patch
+     * @return the geometry showing the patch
+     */
+    public Geometry getGeometry(PopUpBookTree.PatchNode patch) {
+        return patchGraphicsMap.get(patch).geometry;
+    }
+
+    /**
+     * returns the geometry of the front cover
+     * @return front cover geometry
+     */
+    public Geometry getFront() {
+        return getGeometry(tree.getFront());
+    }
+
+    /**
+     * Builds a patch given the parent of the patch, its boundary, and its axis, and a geometry to show it
+     * @param prev geometry of the parent of the patch to add
+     * @param boundary boundary of the patch
+     * @param axis axis betwen the patch and its parent
+     * @return the new patch
+     */
+    public PopUpBookTree.PatchNode addPatch(Geometry prev, Vector3f[] boundary, Vector3f[] axis) {
+        PopUpBookTree.PatchNode patch = tree.addPatch(geomPatchMap.get(prev), boundary, axis);
+        addGeometry(patch);
+        return patch;
+    }
+
+    /**
+     * Makes the geometry for a patch and attaches it to the scene
+     * @param patch the patch
+     */
+    private void addGeometry(PopUpBookTree.PatchNode patch) {
+        Geometry geometry = new Geometry("Patch", Util.makeMesh(patch.boundary));
+        geometry.setMaterial(app.paper);
+        if (!mergedMode) {
+            app.patches.attachChild(geometry);
+        }
+        geomPatchMap.put(geometry, patch);
+        patchGraphicsMap.put(patch, new PatchGraphics(geometry));
+        mergedDirty = true;
+    }
+
+    /**
+     * Turns merged mode on or off. In merged mode all patches are drawn as one mesh, so the number of draw calls
+     * does not grow with the number of patches.
+     * @param mergedMode true to draw all patches as one mesh, false to draw every patch as its own geometry
+     */
+    public void setMerged(boolean mergedMode) {
+        if (this.mergedMode == mergedMode) {
+            return;
+        }
+        this.mergedMode = mergedMode;
+        for (PatchGraphics graphics : patchGraphicsMap.values()) {
+            if (mergedMode) {
+                graphics.geometry.removeFromParent();
+            } else {
+                graphics.geometry.setMaterial(graphics.marked ? app.markPaper : app.paper);
+                app.patches.attachChild(graphics.geometry);
+            }
+        }
+        if (!mergedMode && merged != null) {
+            merged.removeFromParent();
+            merged = null;
+        }
+        mergedDirty = true;
+        update();
+    }
+
+    /**
+     * Checks if all patches are drawn as one mesh
+     * @return true in merged mode
+     */
+    public boolean isMerged() {
+        return mergedMode;
+    }
+
+    /**
+     * Marks or unmarks a patch, used for selected patches and patches that collided
+     * @param geometry geometry of the patch
+     * @param marked true to mark the patch, false to show it as plain paper
+     */
+    public void setMarked(Geometry geometry, boolean marked) {
+        PopUpBookTree.PatchNode patch = geomPatchMap.get(geometry);
+        if (patch == null) {
+            return;
+        }
+        PatchGraphics graphics = patchGraphicsMap.get(patch);
+        graphics.marked = marked;
+        if (!mergedMode) {
+            geometry.setMaterial(marked ? app.markPaper : app.paper);
+        } else if (merged != null && !mergedDirty) {
+            VertexBuffer colorBuffer = merged.getMesh().getBuffer(VertexBuffer.Type.Color);
+            FloatBuffer colors = (FloatBuffer) colorBuffer.getData();
+            putColor(colors, graphics);
+            colorBuffer.updateData(colors);
+        }
+    }
+
+    /**
+     * Unmarks all patches
+     */
+    public void clearMarks() {
+        for (Geometry geometry : geomPatchMap.keySet()) {
+            setMarked(geometry, false);
+        }
+    }
+
+    /**
+     * Casts a ray at the patches.
+     * @param ray the ray
+     * @param results collision results to fill
+     * @return geometry of the patch closest to the start of the ray, null if no patch is hit
+     */
+    public Geometry pick(Ray ray, CollisionResults results) {
+        app.patches.collideWith(ray, results);
+        if (results.size() == 0) {
+            return null;
+        }
+        PopUpBookTree.PatchNode patch = getPatch(results.getClosestCollision());
+        return patch == null ? null : getGeometry(patch);
+    }
+
+    /**
+     * Gets the patch hit in a collision result with the patches. In merged mode the patch is looked up from
+     * the index of the triangle hit.
+     * @param result the collision result
+     * @return the patch hit, null if the result is not on a patch
+     */
+    public PopUpBookTree.PatchNode getPatch(CollisionResult result) {
+        if (!mergedMode) {
+            return geomPatchMap.get(result.getGeometry());
+        }
+        if (result.getGeometry() != merged) {
+            return null;
+        }
+        int index = Arrays.binarySearch(triangleStarts, result.getTriangleIndex());
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? null : triangleOwners[index];
+    }
+
+    /**
+     * Adds a joint relation between two patches given the two patch, the jointing axis, and the type of joint
+     * @param patchA patchA
+     * @param patchB patchB
+     * @param axis joint axis
+     * @param type Type of joint
+     */
+    public void addJoint(PopUpBookTree.PatchNode patchA, PopUpBookTree.PatchNode patchB, Vector3f[] axis, String type) {
+        tree.addJoint(patchA, patchB, axis, type);
+    }
+
+    /**
+     * Delete a patch, and all its children and the patch at is joint to it, and removes their geometries.
+     * @param patch
+     */
+    public void delete(PopUpBookTree.PatchNode patch) {
+        ArrayList<PopUpBookTree.PatchNode> deleted = new ArrayList<>();
+        tree.delete(patch, deleted);
+        for (PopUpBookTree.PatchNode deletedPatch : deleted) {
+            PatchGraphics graphics = patchGraphicsMap.remove(deletedPatch);
+            graphics.geometry.removeFromParent();
+            geomPatchMap.remove(graphics.geometry);
+            mergedDirty = true;
+        }
+        update();
+    }
+
+    /**
+     * Folds the design given a percentage. 1 is folded all the way and 0 is not folded.
+     * Updates the graphics after
+     * @param percent percentage of fold
+     */
+    public void fold(float percent) {
+        tree.fold(percent);
+        update();
+    }
+
+    /**
+     * Sets the number of fold percentages the trajectory cache samples. Less than 2 turns the cache off.
+     * @param samples number of samples between unfolded and folded
+     */
+    public void setTrajectorySamples(int samples) {
+        tree.setTrajectorySamples(samples);
+    }
+
+    /**
+     * Folds the design given a percentage using the trajectory cache. Updates the graphics after
+     * @param percent percentage of fold
+     */
+    public void foldCached(float percent) {
+        tree.foldCached(percent);
+        update();
+    }
+
+    /**
+     * Gets the collisions in the current pose, see PopUpBookTree.getCollisionReport
+     * @return the report, empty if nothing collides
+     */
+    public CollisionReport getCollisionReport() {
+        return tree.getCollisionReport();
+    }
+
+    /**
+     * Gets the collisions when the design is folded to a percentage, without changing what is shown
+     * @param percent percentage of fold
+     * @return the report, empty if nothing collides
+     */
+    public CollisionReport getCollisionReport(float percent) {
+        return tree.getCollisionReport(percent);
+    }
+
+    /**
+     * Marks the patches of every pair in a report
+     * @param report the report of the current design
+     */
+    public void markCollisions(CollisionReport report) {
+        for (CollisionReport.Pair pair : report.getPairs()) {
+            setMarked(getGeometry(tree.getPatch(pair.getIdA())), true);
+            setMarked(getGeometry(tree.getPatch(pair.getIdB())), true);
+        }
+    }
+
+    /**
+     * Get the axis Between two Geometry
+     * @param geomA Geometry A
+     * @param geomB Geometry B
+     * @return the axis between the two geometries
+     */
+    public Vector3f[] axisBetween(Geometry geomA, Geometry geomB) {
+        return tree.axisBetween(geomPatchMap.get(geomA), geomPatchMap.get(geomB));
+    }
+
+    /**
+     * Checks if two geometry is patches that are neighbors
+     * @param geomA geometry A
+     * @param geomB geometry B
+     * @return true if they are neighbors, false otherwise.
+     */
+    public boolean isNeighbor(Geometry geomA, Geometry geomB) {
+        if (geomA == null || geomB == null) {
+            return false;
+        }
+        return tree.isNeighbor(geomPatchMap.get(geomA), geomPatchMap.get(geomB));
+    }
+
+    /**
+     * Attatch a point on a geometry. And get the position of the point when the design is folded
+     * @param parent geometry to attach point to
+     * @param point geometry position to attatch
+     * @param percent percentage of fold
+     * @return the position of the point when design is folded
+     */
+    public Vector3f predictWhenFold(Geometry parent, Vector3f point, float percent) {
+        return tree.predictWhenFold(geomPatchMap.get(parent), point, percent);
+    }
+
+    /**
+     * Attatch many points on geometries. And get the position of every point when the design is folded,
+     * folding the design once for every distinct percentage. See PopUpBookTree.predictWhenFold
+     * @param parents geometry to attach each point to
+     * @param points position of each point to attatch
+     * @param percents percentage of fold for each point
+     * @return the position of each point when design is folded
+     */
+    public Vector3f[] predictWhenFold(Geometry[] parents, Vector3f[] points, float[] percents) {
+        PopUpBookTree.PatchNode[] patches = new PopUpBookTree.PatchNode[parents.length];
+        for (int i = 0; i < parents.length; i++) {
+            patches[i] = geomPatchMap.get(parents[i]);
+        }
+        return tree.predictWhenFold(patches, points, percents);
+    }
+
+    /**
+     * Get the maximum safty area patches in a joint without patches sticking out when folded.
+     * See PopUpBookTree.getBoundarys
+     * @param parentA parent A
+     * @param parentB parent B
+     * @param axisA1 joint point 1 between patch A and parent A
+     * @param axisA2 joint point 2 between patch A and parent A
+     * @param axisB1 joint point 1 between patch B and parent B
+     * @param axisB2 joint point 2 between patch B and parent B
+     * @param jointA1 joint point 1 between patch A and patch B on patch A
+     * @param jointA2 joint point 2 between patch A and patch B on patch A
+     * @param jointB1 joint point 1 between patch A and patch B on patch B
+     * @param jointB2 joint point 2 between patch A and patch B on patch B
+     * @param type type of joint
+     * @return pair of vertices list representing the maximum area of patch A and patch B
+     */
+    public ArrayList<ArrayList<Vector3f>> getBoundarys(Geometry parentA, Geometry parentB,
+            Vector3f axisA1, Vector3f axisA2, Vector3f axisB1, Vector3f axisB2,
+            Vector3f jointA1, Vector3f jointA2, Vector3f jointB1, Vector3f jointB2, String type) {
+        return tree.getBoundarys(geomPatchMap.get(parentA), geomPatchMap.get(parentB),
+                axisA1, axisA2, axisB1, axisB2, jointA1, jointA2, jointB1, jointB2, type);
+    }
+
+    /**
+     * updates the graphics of the program
+     */
+    void update() {
+        FloatBuffer linePositions = getLinePositions();
+        linePositions.clear();
+        TempVars vars = TempVars.get();
+        FloatBuffer mergedPositions = null;
+        if (mergedMode) {
+            mergedPositions = getMergedPositions();
+            mergedPositions.clear();
+        }
+        for (PopUpBookTree.PatchNode patch : tree.getPatches()) {
+            PatchGraphics graphics = patchGraphicsMap.get(patch);
+            patch.toCurrent(graphics.originalBuffer, graphics.translatedBuffer);
+            if (mergedMode) {
+                mergedPositions.put(graphics.translatedBuffer);
+            } else {
+                Geometry geometry = graphics.geometry;
+                VertexBuffer positionBuffer = geometry.getMesh().getBuffer(VertexBuffer.Type.Position);
+                FloatBuffer positions = (FloatBuffer) positionBuffer.getData();
+                positions.clear();
+                positions.put(graphics.translatedBuffer);
+                positions.flip();
+                positionBuffer.updateData(positions);
+                //the collision tree is built again by the next pick ray cast at the patch, not on every fold
+                geometry.getMesh().clearCollisionData();
+                geometry.getMesh().updateBound();
+                geometry.updateModelBound();
+            }
+            float[] currentPoints = patch.getCurrentPoints();
+            for (int i = 0; i < currentPoints.length; i += 3) {
+                int next = (i + 3) % currentPoints.length;
+                vars.vect1.set(currentPoints[i], currentPoints[i + 1], currentPoints[i + 2]);
+                vars.vect2.set(currentPoints[next], currentPoints[next + 1], currentPoints[next + 2]);
+                putTube(linePositions, vars.vect1, vars.vect2, vars);
+            }
+        }
+        vars.release();
+        linePositions.flip();
+        Mesh lineMesh = lines.getMesh();
+        lineMesh.getBuffer(VertexBuffer.Type.Position).updateData(linePositions);
+        lineMesh.updateBound();
+        lines.updateModelBound();
+        if (mergedMode) {
+            mergedPositions.flip();
+            Mesh mergedMesh = merged.getMesh();
+            mergedMesh.getBuffer(VertexBuffer.Type.Position).updateData(mergedPositions);
+            mergedMesh.clearCollisionData();
+            mergedMesh.updateBound();
+            merged.updateModelBound();
+        }
+    }
+
+    /**
+     * Gets the position buffer of the merged mesh, making the mesh again when patches were added or deleted.
+     * Every patch gets a range of vertices and a range of triangles in the order of the patches in the tree.
+     * @return position buffer with room for the vertices of every patch
+     */
+    private FloatBuffer getMergedPositions() {
+        if (merged == null) {
+            Material mergedMaterial = app.paper.clone();
+            mergedMaterial.setBoolean("UseVertexColor", true);
+            merged = new Geometry("Patches", new Mesh());
+            merged.getMesh().setDynamic();
+            merged.setMaterial(mergedMaterial);
+            app.patches.attachChild(merged);
+            mergedDirty = true;
+        }
+        if (mergedDirty) {
+            ArrayList<PopUpBookTree.PatchNode> patches = tree.getPatches();
+            int vertices = 0;
+            int triangles = 0;
+            for (PopUpBookTree.PatchNode patch : patches) {
+                PatchGraphics graphics = patchGraphicsMap.get(patch);
+                vertices += graphics.originalBuffer.length / 3;
+                triangles += graphics.indices.length / 3;
+            }
+            FloatBuffer colors = BufferUtils.createFloatBuffer(vertices * 4);
+            IntBuffer indices = BufferUtils.createIntBuffer(triangles * 3);
+            triangleStarts = new int[patches.size()];
+            triangleOwners = new PopUpBookTree.PatchNode[patches.size()];
+            int vertexStart = 0;
+            for (int i = 0; i < patches.size(); i++) {
+                PatchGraphics graphics = patchGraphicsMap.get(patches.get(i));
+                graphics.vertexStart = vertexStart;
+                triangleStarts[i] = indices.position() / 3;
+                triangleOwners[i] = patches.get(i);
+                for (int index : graphics.indices) {
+                    indices.put(vertexStart + index);
+                }
+                putColor(colors, graphics);
+                vertexStart += graphics.originalBuffer.length / 3;
+            }
+            indices.flip();
+            Mesh mesh = merged.getMesh();
+            mesh.setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(vertices * 3));
+            mesh.setBuffer(VertexBuffer.Type.Color, 4, colors);
+            mesh.setBuffer(VertexBuffer.Type.Index, 3, indices);
+            mergedDirty = false;
+        }
+        return (FloatBuffer) merged.getMesh().getBuffer(VertexBuffer.Type.Position).getData();
+    }
+
+    /**
+     * Writes the vertex colour of a patch into its range of the colour buffer of the merged mesh
+     * @param colors colour buffer of the merged mesh
+     * @param graphics the graphics of the patch
+     */
+    private void putColor(FloatBuffer colors, PatchGraphics graphics) {
+        ColorRGBA color = graphics.marked ? MARK_COLOR : ColorRGBA.White;
+        for (int i = 0; i < graphics.originalBuffer.length / 3; i++) {
+            int offset = (graphics.vertexStart + i) * 4;
+            colors.put(offset, color.r).put(offset + 1, color.g).put(offset + 2, color.b).put(offset + 3, color.a);
+        }
+    }
+
+    /**
+     * Writes the vertices of the crease tube along an edge, a ring around each end of the edge
+     * @param positions position buffer of the crease mesh
+     * @param start one end of the edge
+     * @param end the other end of the edge
+     * @param vars temporary vectors, vect1 and vect2 are not used
+     */
+    private void putTube(FloatBuffer positions, Vector3f start, Vector3f end, TempVars vars) {
+        Vector3f direction = vars.vect3.set(end).subtractLocal(start).normalizeLocal();
+        Vector3f side = direction.cross(Vector3f.UNIT_Y, vars.vect4);
+        if (side.lengthSquared() < Util.FLT_EPSILON) {
+            direction.cross(Vector3f.UNIT_X, side);
+        }
+        side.normalizeLocal();
+        Vector3f up = direction.cross(side, vars.vect5);
+        putRing(positions, start, side, up, vars.vect6);
+        putRing(positions, end, side, up, vars.vect6);
+    }
+
+    /**
+     * Writes the vertices of a ring of a crease tube
+     * @param positions position buffer of the crease mesh
+     * @param center center of the ring
+     * @param side unit vector across the edge
+     * @param up unit vector across the edge and the side
+     * @param store vector to work out the vertices in
+     */
+    private void putRing(FloatBuffer positions, Vector3f center, Vector3f side, Vector3f up, Vector3f store) {
+        for (int i = 0; i < LINE_SIDES; i++) {
+            float angle = FastMath.TWO_PI * i / LINE_SIDES;
+            float cos = FastMath.cos(angle) * LINE_RADIUS;
+            float sin = FastMath.sin(angle) * LINE_RADIUS;
+            store.set(center).addLocal(side.x * cos + up.x * sin, side.y * cos + up.y * sin, side.z * cos + up.z * sin);
+            positions.put(store.x).put(store.y).put(store.z);
+        }
+    }
+
+    /**
+     * Gets the position buffer of the crease mesh, making the mesh the first time and again when the number
+     * of edges changed. The triangles of the tubes stay the same as long as the number of edges does.
+     * @return position buffer with room for both rings of every edge
+     */
+    private FloatBuffer getLinePositions() {
+        int edges = 0;
+        for (PopUpBookTree.PatchNode patch : tree.getPatches()) {
+            edges += patch.boundary.length;
+        }
+        if (lines == null) {
+            Material lineMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+            lineMaterial.setColor("Color", ColorRGBA.Black);
+            lines = new Geometry("Lines", new Mesh());
+            lines.getMesh().setDynamic();
+            lines.setMaterial(lineMaterial);
+            app.lines.attachChild(lines);
+        }
+        VertexBuffer positions = lines.getMesh().getBuffer(VertexBuffer.Type.Position);
+        int ringSize = LINE_SIDES * 3;
+        if (positions == null || positions.getData().capacity() != edges * ringSize * 2) {
+            IntBuffer indices = BufferUtils.createIntBuffer(edges * LINE_SIDES * 6);
+            for (int edge = 0; edge < edges; edge++) {
+                int start = edge * LINE_SIDES * 2;
+                int end = start + LINE_SIDES;
+                for (int i = 0; i < LINE_SIDES; i++) {
+                    int next = (i + 1) % LINE_SIDES;
+                    //wound counterclockwise seen from outside the tube
+                    indices.put(start + i).put(start + next).put(end + next);
+                    indices.put(start + i).put(end + next).put(end + i);
+                }
+            }
+            indices.flip();
+            lines.getMesh().setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(edges * ringSize * 2));
+            lines.getMesh().setBuffer(VertexBuffer.Type.Index, 3, indices);
+            positions = lines.getMesh().getBuffer(VertexBuffer.Type.Position);
+        }
+        return (FloatBuffer) positions.getData();
+    }
+
+    /**
+     * The geometry showing a patch, with its vertices in the unfolded and in the current position,
+     * packed with x, y and z of each vertex one after the other
+     */
+    private static class PatchGraphics {
+        private Geometry geometry;
+        private float[] originalBuffer;
+        private float[] translatedBuffer;
+        //triangles of the patch, as indices into originalBuffer
+        private int[] indices;
+        //first vertex of the patch in the merged mesh
+        private int vertexStart;
+        private boolean marked;
+
+        /**
+         * Constructor of the PatchGraphics Class
+         * @param geometry the geometry showing the patch, in the unfolded position
+         */
+        private PatchGraphics(Geometry geometry) {
+            this.geometry = geometry;
+            FloatBuffer positions = (FloatBuffer) geometry.getMesh().getBuffer(VertexBuffer.Type.Position).getData();
+            originalBuffer = new float[positions.limit()];
+            positions.rewind();
+            positions.get(originalBuffer);
+            positions.rewind();
+            translatedBuffer = originalBuffer.clone();
+            IntBuffer indexBuffer = (IntBuffer) geometry.getMesh().getBuffer(VertexBuffer.Type.Index).getData();
+            indices = new int[indexBuffer.limit()];
+            indexBuffer.rewind();
+            indexBuffer.get(indices);
+            indexBuffer.rewind();
+        }
+    }
+}
@@ -19,11 +19,12 @@
 package mygame;
 
 import com.jme3.math.FastMath;
-import com.jme3.math.Plane;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.util.BufferUtils;
+import com.jme3.util.TempVars;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 
 /**
@@ -35,10 +36,30 @@ public final class Util {
     /**
      * A threshold value used to compare two float value if the difference
      * between two value is smaller that FLT_EPSILON we consider them as the
-     * same value
+     * same value. It is the tolerance of the distance and plane tests,
+     * FastMath.FLT_EPSILON is only used to keep a division away from zero
      */
     public static final float FLT_EPSILON = 0.0001f;
 
+    /**
+     * Largest gap between two lines that still counts as them meeting. The
+     * editors intersect construction lines about 100 long, whose rounding
+     * is far larger than FLT_EPSILON, so this is the one tolerance of the
+     * line tests that is not FLT_EPSILON
+     */
+    private static final float LINE_GAP = 0.01f;
+
+    /**
+     * Relative error bound of orient2d worked out in float, Shewchuk's
+     * ccwerrboundA for the float epsilon
+     */
+    private static final float ORIENT_FLOAT_BOUND = (3f + 16f * 0x1p-24f) * 0x1p-24f;
+
+    /**
+     * Relative error bound of orient2d summed in double from exact products
+     */
+    private static final double ORIENT_DOUBLE_BOUND = 8 * 0x1p-53;
+
     /**
      * Clone the ArrayList of an Vector3f and return as Array
      *
@@ -62,75 +83,164 @@ public final class Util {
     public static Mesh makeMesh(Vector3f[] vertices) {
         Mesh mesh = new Mesh();
         mesh.setDynamic();
-        Plane plane = new Plane();
-        plane.setPlanePoints(vertices[0], vertices[1], vertices[2]);
-        int count = 0;
-        ArrayList<Integer> notDone = new ArrayList<>();
-        ArrayList<Integer> triangle = new ArrayList<>();
-        int size = vertices.length;
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(vertices));
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, BufferUtils.createIntBuffer(triangulate(vertices)));
+        mesh.updateBound();
+        return mesh;
+
+    }
 
+    /**
+     * Splits a polygon into triangles by ear clipping. The polygon may be concave but must not cross itself.
+     * The triangles keep the winding of the polygon.
+     *
+     * @param vertices Ordered Vertices of a flat polygon
+     * @return indices into vertices, three for each triangle
+     */
+    public static int[] triangulate(Vector3f[] vertices) {
+        int size = vertices.length;
+        if (size < 3) {
+            return new int[0];
+        }
+        //Newell's normal, each component is twice the area of the polygon seen along that axis
+        float normalX = 0, normalY = 0, normalZ = 0;
         for (int i = 0; i < size; i++) {
-            Vector3f u = vertices[(i - 1 + size) % size].subtract(vertices[i]);
-            Vector3f v = vertices[(i + 1) % size].subtract(vertices[i]);
-            if (plane.whichSide(vertices[0].add(u.cross(v))).equals(Plane.Side.Positive)) {
-                count++;
-            }
-            notDone.add(i);
+            Vector3f a = vertices[i];
+            Vector3f b = vertices[(i + 1) % size];
+            normalX += (a.y - b.y) * (a.z + b.z);
+            normalY += (a.z - b.z) * (a.x + b.x);
+            normalZ += (a.x - b.x) * (a.y + b.y);
         }
-        Plane.Side correct;
-        if (count < size - count) {
-            correct = Plane.Side.Negative;
-        } else {
-            correct = Plane.Side.Positive;
-        }
-
-        if (count != 0 || count != size) {
-            boolean clean = false;
-            while (!clean) {
-                clean = true;
-                size = notDone.size();
-                for (int i : notDone) {
-                    Vector3f u = vertices[notDone.get((notDone.indexOf(i) - 1 + size) % size)].subtract(vertices[i]);
-                    Vector3f v = vertices[notDone.get((notDone.indexOf(i) + 1) % size)].subtract(vertices[i]);
-                    if (plane.whichSide(vertices[0].add(u.cross(v))).equals(correct)) {
-                        Vector3f prevPointNormal = vertices[notDone.get((notDone.indexOf(i) - 2 + size) % size)].subtract(vertices[(i-1+size)%size]).cross(
-                        vertices[notDone.get(notDone.indexOf(i))].subtract(vertices[(i-1+size)%size]));
-                        Vector3f nextPointNormal = vertices[notDone.get(notDone.indexOf(i))].subtract(vertices[(i+1)%size]).cross(
-                        vertices[notDone.get((notDone.indexOf(i) + 2)%size)].subtract(vertices[(i+1)%size]));
-                        if(!plane.whichSide(vertices[0].add(prevPointNormal)).equals(correct) || !plane.whichSide(vertices[0].add(nextPointNormal)).equals(correct)){
-                            clean = false;
-                            triangle.add(notDone.get((notDone.indexOf(i) - 1 + size) % size));
-                            triangle.add(i);
-                            triangle.add(notDone.get((notDone.indexOf(i) + 1) % size));
-                            notDone.remove(notDone.indexOf(i));
-                            break;
-                        }
-                        
-                    }
-                }
+        //flatten the polygon along the axis it is seen best from, so that it runs counter clockwise
+        float[] xs = new float[size];
+        float[] ys = new float[size];
+        float absX = FastMath.abs(normalX);
+        float absY = FastMath.abs(normalY);
+        float absZ = FastMath.abs(normalZ);
+        for (int i = 0; i < size; i++) {
+            Vector3f vertex = vertices[i];
+            if (absZ >= absX && absZ >= absY) {
+                xs[i] = vertex.x;
+                ys[i] = normalZ < 0 ? -vertex.y : vertex.y;
+            } else if (absX >= absY) {
+                xs[i] = vertex.y;
+                ys[i] = normalX < 0 ? -vertex.z : vertex.z;
+            } else {
+                xs[i] = vertex.z;
+                ys[i] = normalY < 0 ? -vertex.x : vertex.x;
             }
         }
 
-        while (notDone.size() >= 3) {
-            int found = notDone.get(0);
-            size = notDone.size();
-            triangle.add(notDone.get((notDone.indexOf(found) - 1 + size) % size));
-            triangle.add(found);
-            triangle.add(notDone.get((notDone.indexOf(found) + 1) % size));
-            notDone.remove(notDone.indexOf(found));
+        //the vertices not clipped yet, as a ring
+        int[] prev = new int[size];
+        int[] next = new int[size];
+        boolean[] reflex = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            prev[i] = (i - 1 + size) % size;
+            next[i] = (i + 1) % size;
+        }
+        for (int i = 0; i < size; i++) {
+            reflex[i] = turn(xs, ys, prev[i], i, next[i]) < 0;
+        }
 
+        int[] triangles = new int[(size - 2) * 3];
+        int count = 0;
+        int remaining = size;
+        int current = 0;
+        //vertices looked at since the last ear was clipped
+        int tried = 0;
+        while (remaining > 3) {
+            int before = prev[current];
+            int after = next[current];
+            //a whole lap without an ear only happens to broken polygons, clip the vertex anyway so it ends
+            if (tried >= remaining || isEar(xs, ys, next, reflex, before, current, after)) {
+                triangles[count++] = before;
+                triangles[count++] = current;
+                triangles[count++] = after;
+                next[before] = after;
+                prev[after] = before;
+                remaining--;
+                reflex[before] = turn(xs, ys, prev[before], before, after) < 0;
+                reflex[after] = turn(xs, ys, before, after, next[after]) < 0;
+                //the vertex before could have become an ear
+                current = before;
+                tried = 0;
+            } else {
+                current = after;
+                tried++;
+            }
         }
+        triangles[count++] = prev[current];
+        triangles[count++] = current;
+        triangles[count] = next[current];
+        return triangles;
+    }
 
-        int[] triangles = new int[triangle.size()];
+    /**
+     * Which way the triangle a, b, c turns, see orient2d
+     */
+    private static int turn(float[] xs, float[] ys, int a, int b, int c) {
+        return orient2d(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+    }
 
-        for (int i = 0; i < triangle.size(); i++) {
-            triangles[i] = triangle.get(i);
+    /**
+     * Which way the triangle a, b, c turns, exactly. The determinant is
+     * worked out in float first, and only if it is too close to 0 for the
+     * float error is it summed again in double from exact products, and
+     * then exactly with BigDecimal, so nearly degenerate triangles give the
+     * same answer every time they are asked about.
+     *
+     * @return 1 if a, b, c run counter clockwise, -1 if clockwise, 0 if they are in line
+     */
+    public static int orient2d(float ax, float ay, float bx, float by, float cx, float cy) {
+        float left = (ax - cx) * (by - cy);
+        float right = (ay - cy) * (bx - cx);
+        float det = left - right;
+        float bound = ORIENT_FLOAT_BOUND * (Math.abs(left) + Math.abs(right));
+        if (det > bound) {
+            return 1;
         }
-        mesh.setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(vertices));
-        mesh.setBuffer(VertexBuffer.Type.Index, 3, BufferUtils.createIntBuffer(triangles));
-        mesh.updateBound();
-        return mesh;
+        if (-det > bound) {
+            return -1;
+        }
+        //products of floats are exact in double
+        double term1 = (double) ax * by;
+        double term2 = -(double) ax * cy;
+        double term3 = -(double) cx * by;
+        double term4 = -(double) ay * bx;
+        double term5 = (double) ay * cx;
+        double term6 = (double) cy * bx;
+        double sum = term1 + term2 + term3 + term4 + term5 + term6;
+        double magnitude = Math.abs(term1) + Math.abs(term2) + Math.abs(term3)
+                + Math.abs(term4) + Math.abs(term5) + Math.abs(term6);
+        if (Math.abs(sum) > ORIENT_DOUBLE_BOUND * magnitude) {
+            return sum > 0 ? 1 : -1;
+        }
+        return new BigDecimal(term1).add(new BigDecimal(term2)).add(new BigDecimal(term3))
+                .add(new BigDecimal(term4)).add(new BigDecimal(term5)).add(new BigDecimal(term6)).signum();
+    }
 
+    /**
+     * Checks if the vertex b can be clipped off, which is when it is not reflex and no reflex vertex is in the triangle a, b, c.
+     * Only reflex vertices need checking, since a convex vertex cannot be in the triangle without a reflex one being in it too
+     */
+    private static boolean isEar(float[] xs, float[] ys, int[] next, boolean[] reflex, int a, int b, int c) {
+        if (reflex[b]) {
+            return false;
+        }
+        for (int i = next[c]; i != a; i = next[i]) {
+            if (!reflex[i]) {
+                continue;
+            }
+            //copies of the corners touch the triangle without being in it
+            if ((xs[i] == xs[a] && ys[i] == ys[a]) || (xs[i] == xs[b] && ys[i] == ys[b]) || (xs[i] == xs[c] && ys[i] == ys[c])) {
+                continue;
+            }
+            if (turn(xs, ys, a, b, i) >= 0 && turn(xs, ys, b, c, i) >= 0 && turn(xs, ys, c, a, i) >= 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -145,14 +255,54 @@ public final class Util {
      * @return
      */
     public static Vector3f rotatePoint(Vector3f point, Vector3f axis1, Vector3f axis2, float radian) {
-        Vector3f center = closestPointOnLine(axis1, axis2.subtract(axis1), point);
-        Vector3f up = point.subtract(center);
-        if(up.length() < FastMath.FLT_EPSILON){
-            return point;
+        return rotatePoint(point, axis1, axis2, radian, new Vector3f());
+    }
+
+    /**
+     * Same as rotatePoint, but stores the result in a given vector instead of
+     * allocating new vectors. The store can be the point itself.
+     *
+     * @param point the point to rotate
+     * @param axis1 pointA that makes the axis
+     * @param axis2 pointB that makes the axis
+     * @param radian radian to rotate
+     * @param store vector to store the result in
+     * @return store
+     */
+    public static Vector3f rotatePoint(Vector3f point, Vector3f axis1, Vector3f axis2, float radian, Vector3f store) {
+        float axisX = axis1.x - axis2.x;
+        float axisY = axis1.y - axis2.y;
+        float axisZ = axis1.z - axis2.z;
+        float axisLength = FastMath.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+        //only keeps the division away from zero
+        if (axisLength < FastMath.FLT_EPSILON) {
+            return store.set(point);
+        }
+        axisX /= axisLength;
+        axisY /= axisLength;
+        axisZ /= axisLength;
+
+        //split the point into the part along the axis and the part perpendicular to it
+        float pointX = point.x - axis2.x;
+        float pointY = point.y - axis2.y;
+        float pointZ = point.z - axis2.z;
+        float along = pointX * axisX + pointY * axisY + pointZ * axisZ;
+        float upX = pointX - along * axisX;
+        float upY = pointY - along * axisY;
+        float upZ = pointZ - along * axisZ;
+        if (upX * upX + upY * upY + upZ * upZ < FLT_EPSILON * FLT_EPSILON) {
+            return store.set(point);
         }
-        Vector3f side = setVector3fLength(axis1.subtract(axis2).cross(point.subtract(axis2)), up.length());
-        return center.add(up.mult(FastMath.cos(radian))).add(side.mult(FastMath.sin(radian)));
-        
+
+        //side is perpendicular to the axis and up, with the same length as up
+        float sideX = axisY * upZ - axisZ * upY;
+        float sideY = axisZ * upX - axisX * upZ;
+        float sideZ = axisX * upY - axisY * upX;
+        float cos = FastMath.cos(radian);
+        float sin = FastMath.sin(radian);
+        return store.set(axis2.x + along * axisX + upX * cos + sideX * sin,
+                axis2.y + along * axisY + upY * cos + sideY * sin,
+                axis2.z + along * axisZ + upZ * cos + sideZ * sin);
     }
 
     /**
@@ -165,11 +315,31 @@ public final class Util {
      * @return If mid is between left and right
      */
     public static boolean isBetween(Vector3f left, Vector3f mid, Vector3f right) {
-        
-        if (mid.distance(left) < FLT_EPSILON || mid.distance(right) < FLT_EPSILON) {
+        return isBetween(left, mid.x, mid.y, mid.z, right);
+    }
+
+    /**
+     * isBetween for a mid point given by its coordinates
+     *
+     * @param left Left point
+     * @param midX x of the Mid point
+     * @param midY y of the Mid point
+     * @param midZ z of the Mid point
+     * @param right Right point
+     * @return If mid is between left and right
+     */
+    private static boolean isBetween(Vector3f left, float midX, float midY, float midZ, Vector3f right) {
+        float leftX = midX - left.x;
+        float leftY = midY - left.y;
+        float leftZ = midZ - left.z;
+        float rightX = right.x - midX;
+        float rightY = right.y - midY;
+        float rightZ = right.z - midZ;
+        if (leftX * leftX + leftY * leftY + leftZ * leftZ < FLT_EPSILON * FLT_EPSILON
+                || rightX * rightX + rightY * rightY + rightZ * rightZ < FLT_EPSILON * FLT_EPSILON) {
             return true;
         }
-        return   mid.subtract(left).dot(right.subtract(mid)) > 0;
+        return leftX * rightX + leftY * rightY + leftZ * rightZ > 0;
     }
 
     /**
@@ -182,13 +352,33 @@ public final class Util {
      * @return if mid, left and right are aligned
      */
     public static boolean inLine(Vector3f left, Vector3f mid, Vector3f right) {
-        Vector3f vector1 = left.subtract(mid);
-        Vector3f vector2 = mid.subtract(right);
-        if (vector1.length() < FLT_EPSILON || vector2.length() < FLT_EPSILON) {
+        float x1 = left.x - mid.x;
+        float y1 = left.y - mid.y;
+        float z1 = left.z - mid.z;
+        float x2 = mid.x - right.x;
+        float y2 = mid.y - right.y;
+        float z2 = mid.z - right.z;
+        if (x1 * x1 + y1 * y1 + z1 * z1 < FLT_EPSILON * FLT_EPSILON || x2 * x2 + y2 * y2 + z2 * z2 < FLT_EPSILON * FLT_EPSILON) {
             return true;
         }
-        //System.out.println("OOLD: "+ vector1.normalize().cross(vector2.normalize()).distance(Vector3f.ZERO));
-        return vector1.normalize().cross(vector2.normalize()).distance(Vector3f.ZERO) < FLT_EPSILON;
+        return sinBetween(x1, y1, z1, x2, y2, z2) < FLT_EPSILON;
+    }
+
+    /**
+     * Gets the length of the cross product of two vectors after normalizing
+     * them, which is the sine of the angle between them. Zero vectors give 0.
+     *
+     * @return sine of the angle between the vectors
+     */
+    private static float sinBetween(float x1, float y1, float z1, float x2, float y2, float z2) {
+        float lengths = FastMath.sqrt((x1 * x1 + y1 * y1 + z1 * z1) * (x2 * x2 + y2 * y2 + z2 * z2));
+        if (lengths == 0f) {
+            return 0f;
+        }
+        float crossX = y1 * z2 - z1 * y2;
+        float crossY = z1 * x2 - x1 * z2;
+        float crossZ = x1 * y2 - y1 * x2;
+        return FastMath.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ) / lengths;
     }
 
     /**
@@ -230,11 +420,30 @@ public final class Util {
      * @return The point on the line that is closest to the target Point
      */
     public static Vector3f closestPointOnLine(Vector3f linePoint, Vector3f lineDirrection, Vector3f targetPoint) {
-        if (linePoint.subtract(targetPoint).normalize().cross(linePoint.subtract(linePoint.add(lineDirrection)).normalize()).distance(Vector3f.ZERO) < FastMath.FLT_EPSILON) {
-            return targetPoint;
+        return closestPointOnLine(linePoint, lineDirrection, targetPoint, new Vector3f());
+    }
+
+    /**
+     * Same as closestPointOnLine, but stores the result in a given vector
+     * instead of allocating new vectors.
+     *
+     * @param linePoint A point that defines the line
+     * @param lineDirrection The direction of the line
+     * @param targetPoint Target Point
+     * @param store vector to store the result in
+     * @return store
+     */
+    public static Vector3f closestPointOnLine(Vector3f linePoint, Vector3f lineDirrection, Vector3f targetPoint, Vector3f store) {
+        float lengthSquared = lineDirrection.lengthSquared();
+        if (lengthSquared == 0f) {
+            return store.set(targetPoint);
         }
-        float angle = lineDirrection.normalize().angleBetween(targetPoint.subtract(linePoint).normalize());
-        return linePoint.add(setVector3fLength(lineDirrection, targetPoint.distance(linePoint) * FastMath.cos(angle)));
+        float along = ((targetPoint.x - linePoint.x) * lineDirrection.x
+                + (targetPoint.y - linePoint.y) * lineDirrection.y
+                + (targetPoint.z - linePoint.z) * lineDirrection.z) / lengthSquared;
+        return store.set(linePoint.x + lineDirrection.x * along,
+                linePoint.y + lineDirrection.y * along,
+                linePoint.z + lineDirrection.z * along);
     }
 
     /**
@@ -272,7 +481,21 @@ public final class Util {
      * @return
      */
     public static boolean lineTouchesBoundary(Vector3f linePoint, Vector3f lineDir, Vector3f[] boundary) {
-        return !(castRayOnBoundary(linePoint, lineDir, boundary) == null && castRayOnBoundary(linePoint, lineDir.negate(), boundary) == null);
+        return lineTouchesBoundary(linePoint, lineDir, new BoundaryFrame(boundary));
+    }
+
+    /**
+     * Same as lineTouchesBoundary, with the frame of the boundary already
+     * made, so it can be kept between calls. Use the frame of a patch,
+     * see PatchNode.getFrame, when checking the same boundary again and again.
+     *
+     * @param linePoint point that defines the line
+     * @param lineDir the direction of the line
+     * @param frame frame of the boundary
+     * @return if the line touches the boundary
+     */
+    public static boolean lineTouchesBoundary(Vector3f linePoint, Vector3f lineDir, BoundaryFrame frame) {
+        return frame.touchesLine(linePoint, lineDir);
     }
 
     /**
@@ -283,44 +506,19 @@ public final class Util {
      * @return if the target is in coplanar and within the boundary
      */
     public static boolean inBoundary(Vector3f target, Vector3f[] boundary) {
-        if (FastMath.abs(target.subtract(boundary[0]).normalize().dot(getBountdaryNormal(boundary).normalize())) < FastMath.FLT_EPSILON) {
-            //System.out.println("On Plane" + FastMath.abs(target.subtract(boundary[0].normalize()).dot(getBountdaryNormal(boundary).normalize())));
-            Vector3f dir = new Vector3f();
-            float length = 0f;
-            ArrayList<Vector3f> collision = new ArrayList<>();
-            for (int i = 0; i < boundary.length; i++) {
-                if (target.distance(boundary[i]) > length) {
-                    length = target.distance(boundary[i]);
-                }
-                dir.addLocal(boundary[i]);
-            }
-            Vector3f center = dir.divide(boundary.length);
-            dir = setVector3fLength(center.subtract(target), length*2);
-            for (int i = 0; i < boundary.length; i++) {
-                if (target.equals(boundary[i]) || (inLine(boundary[i], target, boundary[(i + 1) % boundary.length])) && isBetween(boundary[i], target, boundary[(i + 1) % boundary.length])) {
-                    return true;
-                }
-                Vector3f rayHit = segmentIntesection(target, target.add(dir), boundary[i], boundary[(i + 1) % boundary.length]);
-                if (rayHit != null && !Util.containsVector3f(collision, rayHit)) {
-                    collision.add(rayHit);
-                }
-            }
+        return inBoundary(target, new BoundaryFrame(boundary));
+    }
 
-            if (collision.size() % 2 == 1) {
-               System.out.println("boundary = new Vector3f[]{");
-               for(Vector3f point:boundary){
-                   System.out.println("new Vector3f("+point.x+"f,"+point.y+"f,"+point.z+"f),");
-               }
-                System.out.println("};");
-                System.out.println("assertFalse(Util.inBoundary(new Vector3f("+target.x+"f, "+target.y+"f, "+target.z+"f), boundary));");
-                
-                return true;
-            } else {
-                return false;
-            }
-        } else {
-            return false;
-        }
+    /**
+     * Same as inBoundary, with the frame of the boundary already made, so it
+     * can be kept between calls
+     *
+     * @param target The target point
+     * @param frame frame of the boundary
+     * @return if the target is in coplanar and within the boundary
+     */
+    public static boolean inBoundary(Vector3f target, BoundaryFrame frame) {
+        return frame.contains(target);
     }
 
     /**
@@ -333,19 +531,20 @@ public final class Util {
      * @return the point of collision
      */
     public static Vector3f castRayOnBoundary(Vector3f rayStart, Vector3f rayDir, Vector3f[] boundary) {
-        Vector3f closestCollision = null;
-        Vector3f rayEnd = rayStart.add(setVector3fLength(rayDir, 100f));
-        for (int i = 0; i < boundary.length; i++) {
-            if (!inLine(boundary[i], rayStart, boundary[(i + 1) % boundary.length])) {
-                Vector3f intersection = segmentIntesection(rayStart, rayEnd, boundary[i], boundary[(i + 1) % boundary.length]);
-                if (intersection != null) {
-                    if (closestCollision == null || intersection.distance(rayStart) < closestCollision.distance(rayStart)) {
-                        closestCollision = intersection;
-                    }
-                }
-            }
-        }
-        return closestCollision;
+        return castRayOnBoundary(rayStart, rayDir, new BoundaryFrame(boundary));
+    }
+
+    /**
+     * Same as castRayOnBoundary, with the frame of the boundary already made,
+     * so it can be kept between calls
+     *
+     * @param rayStart start of the ray
+     * @param rayDir direction of the ray
+     * @param frame frame of the boundary
+     * @return the point of collision
+     */
+    public static Vector3f castRayOnBoundary(Vector3f rayStart, Vector3f rayDir, BoundaryFrame frame) {
+        return frame.castRay(rayStart, rayDir);
     }
 
     /**
@@ -362,15 +561,15 @@ public final class Util {
 
         for (int i = 0; i < boundary.length; i++) {
             if (inLine(boundary[i], lineDir, boundary[(i + 1) % boundary.length]) && isBetween(boundary[i], lineDir, boundary[(i + 1) % boundary.length])) {
-                if (boundary[(i + 1) % boundary.length].subtract(boundary[i]).cross(lineDir).distance(Vector3f.ZERO) < FastMath.FLT_EPSILON) {
+                if (boundary[(i + 1) % boundary.length].subtract(boundary[i]).cross(lineDir).distance(Vector3f.ZERO) < FLT_EPSILON) {
                     intersections.add(boundary[i].clone());
                     intersections.add(boundary[(i + 1) % boundary.length].clone());
-                } else if (linePoint.distance(boundary[i]) < FastMath.FLT_EPSILON) {
+                } else if (linePoint.distance(boundary[i]) < FLT_EPSILON) {
                     intersections.add(boundary[i].clone());
                     intersections.add(boundary[i].clone());
                 }
             }
-            if (linePoint.subtract(boundary[i]).cross(lineDir).distance(Vector3f.ZERO) < FastMath.FLT_EPSILON && inLine(boundary[i], lineDir, boundary[(i + 1) % boundary.length])) {
+            if (linePoint.subtract(boundary[i]).cross(lineDir).distance(Vector3f.ZERO) < FLT_EPSILON && inLine(boundary[i], lineDir, boundary[(i + 1) % boundary.length])) {
                 intersections.add(boundary[i].clone());
             } else {
                 Vector3f intersection = segmentIntesection(linePoint, linePoint.add(setVector3fLength(lineDir, 100f)), boundary[i], boundary[(i + 1) % boundary.length]);
@@ -412,27 +611,53 @@ public final class Util {
      * @return the intersection point of the two sigments
      */
     public static Vector3f segmentIntesection(Vector3f lineAStart, Vector3f lineAEnd, Vector3f lineBStart, Vector3f lineBEnd) {
-        if ((lineAStart.distance(lineBStart) < FastMath.FLT_EPSILON || lineAEnd.distance(lineBStart) < FastMath.FLT_EPSILON) && !(inLine(lineAStart, lineBEnd, lineAEnd) && isBetween(lineAStart, lineBEnd, lineAEnd))) {
-            return lineBStart;
+        Vector3f intersection = new Vector3f();
+        if (segmentIntesection(lineAStart, lineAEnd, lineBStart, lineBEnd, intersection)) {
+            return intersection;
+        }
+        return null;
+    }
+
+    /**
+     * Same as segmentIntesection, but stores the intersection point in a given
+     * vector instead of allocating new vectors.
+     *
+     * @param lineAStart
+     * @param lineAEnd
+     * @param lineBStart
+     * @param lineBEnd
+     * @param store vector to store the intersection point in
+     * @return true if the sigments intersect
+     */
+    public static boolean segmentIntesection(Vector3f lineAStart, Vector3f lineAEnd, Vector3f lineBStart, Vector3f lineBEnd, Vector3f store) {
+        if ((lineAStart.distance(lineBStart) < FLT_EPSILON || lineAEnd.distance(lineBStart) < FLT_EPSILON) && !(inLine(lineAStart, lineBEnd, lineAEnd) && isBetween(lineAStart, lineBEnd, lineAEnd))) {
+            store.set(lineBStart);
+            return true;
         }
-        if ((lineAStart.distance(lineBEnd) < FastMath.FLT_EPSILON || lineAEnd.distance(lineBEnd) < FastMath.FLT_EPSILON) && !(inLine(lineAStart, lineBStart, lineAEnd) && isBetween(lineAStart, lineBStart, lineAEnd))) {
-            return lineBEnd;
+        if ((lineAStart.distance(lineBEnd) < FLT_EPSILON || lineAEnd.distance(lineBEnd) < FLT_EPSILON) && !(inLine(lineAStart, lineBStart, lineAEnd) && isBetween(lineAStart, lineBStart, lineAEnd))) {
+            store.set(lineBEnd);
+            return true;
         }
-        if (lineAStart.subtract(lineAEnd).normalize().cross(lineBStart.subtract(lineBEnd).normalize()).distance(Vector3f.ZERO) > FastMath.FLT_EPSILON) {
+        if (sinBetween(lineAStart.x - lineAEnd.x, lineAStart.y - lineAEnd.y, lineAStart.z - lineAEnd.z,
+                lineBStart.x - lineBEnd.x, lineBStart.y - lineBEnd.y, lineBStart.z - lineBEnd.z) > FLT_EPSILON) {
             if (inLine(lineAStart, lineBEnd, lineAEnd) && isBetween(lineAStart, lineBEnd, lineAEnd)) {
-                return lineBEnd;
+                store.set(lineBEnd);
+                return true;
             }
             if (inLine(lineAStart, lineBStart, lineAEnd) && isBetween(lineAStart, lineBStart, lineAEnd)) {
-                return lineBStart;
+                store.set(lineBStart);
+                return true;
             }
             if (inLine(lineBStart, lineAEnd, lineBEnd) && isBetween(lineBStart, lineAEnd, lineBEnd)) {
-                return lineAEnd;
+                store.set(lineAEnd);
+                return true;
             }
             if (inLine(lineBStart, lineAStart, lineBEnd) && isBetween(lineBStart, lineAStart, lineBEnd)) {
-                return lineAStart;
+                store.set(lineAStart);
+                return true;
             }
         }
-        return lineSegmentIntersectHelper(lineAStart, lineAEnd, lineBStart, lineBEnd, false);
+        return lineSegmentIntersectHelper(lineAStart, lineAEnd, lineBStart, lineBEnd, false, store);
     }
 
     /**
@@ -445,7 +670,11 @@ public final class Util {
      * @return
      */
     public static Vector3f lineIntersection(Vector3f lineAPoint1, Vector3f lineAPoint2, Vector3f lineBPoint1, Vector3f lineBPoint2) {
-        return lineSegmentIntersectHelper(lineAPoint1, lineAPoint2, lineBPoint1, lineBPoint2, true);
+        Vector3f intersection = new Vector3f();
+        if (lineSegmentIntersectHelper(lineAPoint1, lineAPoint2, lineBPoint1, lineBPoint2, true, intersection)) {
+            return intersection;
+        }
+        return null;
     }
 
     /**
@@ -457,45 +686,55 @@ public final class Util {
      * @param point3 linePoint3
      * @param point4 linePoint4
      * @param infiniteLine if the lines are infinely long or not
-     * @return collision point
+     * @param store vector to store the collision point in
+     * @return true if there is a collision point
      */
-    private static Vector3f lineSegmentIntersectHelper(Vector3f point1, Vector3f point2, Vector3f point3, Vector3f point4, boolean infiniteLine) {
-        Vector3f v13 = point1.subtract(point3);
-        Vector3f v43 = point4.subtract(point3);
-        Vector3f v21 = point2.subtract(point1);
+    private static boolean lineSegmentIntersectHelper(Vector3f point1, Vector3f point2, Vector3f point3, Vector3f point4, boolean infiniteLine, Vector3f store) {
+        float v13x = point1.x - point3.x;
+        float v13y = point1.y - point3.y;
+        float v13z = point1.z - point3.z;
+        float v43x = point4.x - point3.x;
+        float v43y = point4.y - point3.y;
+        float v43z = point4.z - point3.z;
+        float v21x = point2.x - point1.x;
+        float v21y = point2.y - point1.y;
+        float v21z = point2.z - point1.z;
 
-        if (v43.lengthSquared() < FastMath.FLT_EPSILON || v21.lengthSquared() < FastMath.FLT_EPSILON) {
-            return null;
+        float d4343 = v43x * v43x + v43y * v43y + v43z * v43z;
+        float d2121 = v21x * v21x + v21y * v21y + v21z * v21z;
+        //segments shorter than FLT_EPSILON are points, the same as for isBetween
+        if (d4343 < FLT_EPSILON * FLT_EPSILON || d2121 < FLT_EPSILON * FLT_EPSILON) {
+            return false;
         }
-        float d1343 = v13.x * v43.x + v13.y * v43.y + v13.z * v43.z;
-        float d4321 = v43.x * v21.x + v43.y * v21.y + v43.z * v21.z;
-        float d1321 = v13.x * v21.x + v13.y * v21.y + v13.z * v21.z;
-        float d4343 = v43.x * v43.x + v43.y * v43.y + v43.z * v43.z;
-        float d2121 = v21.x * v21.x + v21.y * v21.y + v21.z * v21.z;
+        float d1343 = v13x * v43x + v13y * v43y + v13z * v43z;
+        float d4321 = v43x * v21x + v43y * v21y + v43z * v21z;
+        float d1321 = v13x * v21x + v13y * v21y + v13z * v21z;
 
+        //denom is the squared sine of the angle between the lines times their squared lengths,
+        //so lines are parallel where inLine would find them in line
         float denom = d2121 * d4343 - d4321 * d4321;
-        if (FastMath.abs(denom) < FastMath.FLT_EPSILON) {
-            //System.out.println("Denom = " + FastMath.abs(denom));
-            return null;
+        if (denom < FLT_EPSILON * FLT_EPSILON * d2121 * d4343) {
+            return false;
         }
         float numer = d1343 * d4321 - d1321 * d4343;
 
         float mua = numer / denom;
         float mub = (d1343 + d4321 * mua) / d4343;
-        Vector3f pointA = point1.add(v21.mult(mua));
-        Vector3f pointB = point3.add(v43.mult(mub));
-        if (pointA.distance(pointB) < 0.01) {
-            if (infiniteLine || (isBetween(point1, pointA, point2) && isBetween(point3, pointB, point4))) {
-                return pointA;
-            } else {
-                //System.out.println("NotBetween " + infiniteLine);
-                return null;
-            }
-
-        } else {
-            //System.out.println("Distance = " + pointA.distance(pointB));
-            return null;
+        float pointAX = point1.x + v21x * mua;
+        float pointAY = point1.y + v21y * mua;
+        float pointAZ = point1.z + v21z * mua;
+        float pointBX = point3.x + v43x * mub;
+        float pointBY = point3.y + v43y * mub;
+        float pointBZ = point3.z + v43z * mub;
+        float gapX = pointAX - pointBX;
+        float gapY = pointAY - pointBY;
+        float gapZ = pointAZ - pointBZ;
+        if (gapX * gapX + gapY * gapY + gapZ * gapZ < LINE_GAP * LINE_GAP
+                && (infiniteLine || (isBetween(point1, pointAX, pointAY, pointAZ, point2) && isBetween(point3, pointBX, pointBY, pointBZ, point4)))) {
+            store.set(pointAX, pointAY, pointAZ);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -510,6 +749,7 @@ public final class Util {
      */
     public static Vector3f linePlaneIntersection(Vector3f linePoint, Vector3f lineDir, Vector3f planePoint, Vector3f planeNormal) {
 
+        //only keeps the division away from zero
         if (FastMath.abs(lineDir.dot(planeNormal)) > FastMath.FLT_EPSILON) {
             float d = (planePoint.subtract(linePoint).dot(planeNormal)) / (lineDir.dot(planeNormal));
             return linePoint.add(lineDir.mult(d));
@@ -530,17 +770,84 @@ public final class Util {
      * @return the intersection Point
      */
     public static Vector3f rayPlaneIntersection(Vector3f rayStart, Vector3f rayDir, Vector3f planePoint, Vector3f planeNormal) {
+        Vector3f intersection = new Vector3f();
+        if (rayPlaneIntersection(rayStart, rayDir, planePoint, planeNormal, intersection)) {
+            return intersection;
+        }
+        return null;
+    }
 
-        if (FastMath.abs(rayDir.normalize().dot(planeNormal.normalize())) > FastMath.FLT_EPSILON) {
-            float d = (planePoint.subtract(rayStart).dot(planeNormal)) / (rayDir.dot(planeNormal));
+    /**
+     * Same as rayPlaneIntersection, but stores the intersection point in a
+     * given vector instead of allocating new vectors.
+     *
+     * @param rayStart
+     * @param rayDir
+     * @param planePoint
+     * @param planeNormal
+     * @param store vector to store the intersection point in
+     * @return true if the ray hits the plane
+     */
+    public static boolean rayPlaneIntersection(Vector3f rayStart, Vector3f rayDir, Vector3f planePoint, Vector3f planeNormal, Vector3f store) {
+        float dot = rayDir.dot(planeNormal);
+        float lengths = FastMath.sqrt(rayDir.lengthSquared() * planeNormal.lengthSquared());
+        //the ray must not be in line with the plane, the cosine between it and the normal is checked
+        if (lengths != 0f && FastMath.abs(dot / lengths) > FLT_EPSILON) {
+            float d = ((planePoint.x - rayStart.x) * planeNormal.x
+                    + (planePoint.y - rayStart.y) * planeNormal.y
+                    + (planePoint.z - rayStart.z) * planeNormal.z) / dot;
             if (d >= 0) {
-                return rayStart.add(rayDir.mult(d));
+                store.set(rayStart.x + rayDir.x * d, rayStart.y + rayDir.y * d, rayStart.z + rayDir.z * d);
+                return true;
             }
-        } else {
-            //System.out.println("rayDir.dot(planeNormal) = " + rayDir.dot(planeNormal));
         }
+        return false;
+    }
 
-        return null;
+    /**
+     * Get the point where a ray leaves an axis aligned box. The box is clipped
+     * against the ray one slab at a time, so no geometry or collision data is
+     * needed.
+     *
+     * @param rayStart
+     * @param rayDir
+     * @param boxMin corner of the box with the smallest coordinates
+     * @param boxMax corner of the box with the largest coordinates
+     * @param store vector to store the exit point in
+     * @return true if the ray touches the box
+     */
+    public static boolean rayBoxExit(Vector3f rayStart, Vector3f rayDir, Vector3f boxMin, Vector3f boxMax, Vector3f store) {
+        float near = 0f;
+        float far = Float.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            float start = rayStart.get(axis);
+            float dir = rayDir.get(axis);
+            float min = boxMin.get(axis);
+            float max = boxMax.get(axis);
+            if (dir == 0f) {
+                if (start < min || start > max) {
+                    return false;
+                }
+                continue;
+            }
+            float t1 = (min - start) / dir;
+            float t2 = (max - start) / dir;
+            if (t1 > t2) {
+                float swap = t1;
+                t1 = t2;
+                t2 = swap;
+            }
+            near = Math.max(near, t1);
+            far = Math.min(far, t2);
+            if (near > far) {
+                return false;
+            }
+        }
+        if (Float.isInfinite(far)) {
+            return false;
+        }
+        store.set(rayStart.x + rayDir.x * far, rayStart.y + rayDir.y * far, rayStart.z + rayDir.z * far);
+        return true;
     }
 
     /**
@@ -550,22 +857,63 @@ public final class Util {
      * @return normal of the boundary
      */
     public static Vector3f getBountdaryNormal(Vector3f[] boundary) {
-        for (int i = 0; i < boundary.length; i++) {
-            Vector3f normal = boundary[(boundary.length + i - 1) % boundary.length].subtract(boundary[i]).normalize().cross(boundary[(i + 1) % boundary.length].subtract(boundary[i]).normalize()).normalize();
-            if (normal.distance(Vector3f.ZERO) > FastMath.FLT_EPSILON) {
-                return normal;
-            }
+        Vector3f normal = new Vector3f();
+        if (getBountdaryNormal(boundary, normal)) {
+            return normal;
         }
         return null;
     }
-    public static boolean onBoundary(Vector3f target,Vector3f[] boundary){
-        for(int i = 0; i < boundary.length;i++){
-            if(inLine(boundary[i], target, boundary[(i + 1) % boundary.length]) && isBetween(boundary[i], target, boundary[(i + 1) % boundary.length])){
-                return true;
+
+    /**
+     * Same as getBountdaryNormal, but stores the normal in a given vector
+     * instead of allocating new vectors.
+     *
+     * @param boundary vertices of the boudary
+     * @param store vector to store the normal in
+     * @return true if the boundary has a normal
+     */
+    public static boolean getBountdaryNormal(Vector3f[] boundary, Vector3f store) {
+        TempVars vars = TempVars.get();
+        try {
+            for (int i = 0; i < boundary.length; i++) {
+                Vector3f previous = vars.vect1.set(boundary[(boundary.length + i - 1) % boundary.length]).subtractLocal(boundary[i]).normalizeLocal();
+                Vector3f next = vars.vect2.set(boundary[(i + 1) % boundary.length]).subtractLocal(boundary[i]).normalizeLocal();
+                //the sine between the edges, corners whose edges are in line do not give a normal
+                store.set(previous).crossLocal(next);
+                if (store.length() > FLT_EPSILON) {
+                    store.normalizeLocal();
+                    return true;
+                }
             }
+            return false;
+        } finally {
+            vars.release();
         }
-        return false;
     }
+
+    /**
+     * Checks if a given point is on the edges of a boundary
+     *
+     * @param target The target point
+     * @param boundary The vertices making the boundary
+     * @return if the target is on an edge of the boundary
+     */
+    public static boolean onBoundary(Vector3f target, Vector3f[] boundary) {
+        return onBoundary(target, new BoundaryFrame(boundary));
+    }
+
+    /**
+     * Same as onBoundary, with the frame of the boundary already made, so it
+     * can be kept between calls
+     *
+     * @param target The target point
+     * @param frame frame of the boundary
+     * @return if the target is on an edge of the boundary
+     */
+    public static boolean onBoundary(Vector3f target, BoundaryFrame frame) {
+        return frame.onBoundary(target);
+    }
+
     /**
      * Intersection of two boundaries
      *
@@ -574,53 +922,177 @@ public final class Util {
      * @return intersection of the two boundaries
      */
     public static ArrayList<Vector3f> boundboundIntersect(Vector3f[] boundaryA, Vector3f[] boundaryB) {
-        ArrayList<Vector3f> collisionList = new ArrayList<>();
-        Vector3f normalA = getBountdaryNormal(boundaryA);
-        Vector3f normalB = getBountdaryNormal(boundaryB);
-
-        for (int i = 0; i < boundaryA.length; i++) {
-            Vector3f nextPoint = boundaryA[(i + 1) % boundaryA.length];
-            Vector3f planeCollision = Util.rayPlaneIntersection(boundaryA[i], nextPoint.subtract(boundaryA[i]).normalize(), boundaryB[0], normalB);
-            if (planeCollision != null
-                    && planeCollision.distanceSquared(boundaryA[i]) < boundaryA[i].distanceSquared(nextPoint)
-                    && planeCollision.distanceSquared(nextPoint) > FLT_EPSILON
-                    && planeCollision.distanceSquared(boundaryA[i]) > FLT_EPSILON
-                    && Util.inBoundary(planeCollision, boundaryB) &&
-                    !onBoundary(planeCollision, boundaryB)) {
-                collisionList.add(planeCollision);
-            }
+        return boundboundIntersect(toPacked(boundaryA), toPacked(boundaryB));
+    }
+
+    /**
+     * Same as boundboundIntersect, for boundaries packed with x, y and z of
+     * each vertex one after the other. The edges are tested against the plane
+     * of the other boundary on the packed floats, and only points where an
+     * edge goes through the plane are tested for being within the boundary.
+     *
+     * @param boundaryA packed boundaryA
+     * @param boundaryB packed boundaryB
+     * @return intersection of the two boundaries
+     */
+    public static ArrayList<Vector3f> boundboundIntersect(float[] boundaryA, float[] boundaryB) {
+        return boundboundIntersect(boundaryA, new BoundaryFrame(boundaryA), boundaryB, new BoundaryFrame(boundaryB));
+    }
+
+    /**
+     * Same as boundboundIntersect for packed boundaries, with the frames of the
+     * boundaries already made, so they can be kept between calls.
+     *
+     * @param boundaryA packed boundaryA
+     * @param frameA frame of boundaryA in its position
+     * @param boundaryB packed boundaryB
+     * @param frameB frame of boundaryB in its position
+     * @return intersection of the two boundaries
+     */
+    public static ArrayList<Vector3f> boundboundIntersect(float[] boundaryA, BoundaryFrame frameA, float[] boundaryB, BoundaryFrame frameB) {
+        if (!frameA.isFlat() || !frameB.isFlat()) {
+            return null;
         }
-        for (int i = 0; i < boundaryB.length; i++) {
-            Vector3f nextPoint = boundaryB[(i + 1) % boundaryB.length];
-            Vector3f planeCollision = Util.rayPlaneIntersection(boundaryB[i], nextPoint.subtract(boundaryB[i]).normalize(), boundaryA[0], normalA);
-            if (planeCollision != null
-                    && planeCollision.distanceSquared(boundaryB[i]) < boundaryB[i].distanceSquared(nextPoint)
-                    && planeCollision.distanceSquared(nextPoint) > FLT_EPSILON
-                    && planeCollision.distanceSquared(boundaryB[i]) > FLT_EPSILON
-                    && Util.inBoundary(planeCollision, boundaryA) &&
-                    !onBoundary(planeCollision, boundaryA)) {
-                collisionList.add(planeCollision);
+        TempVars vars = TempVars.get();
+        try {
+            ArrayList<Vector3f> collisionList = edgesThroughBoundary(boundaryA, frameB, null, vars);
+            return edgesThroughBoundary(boundaryB, frameA, collisionList, vars);
+        } finally {
+            vars.release();
+        }
+    }
+
+    /**
+     * Estimates how far two colliding boundaries go through each other. For
+     * each boundary, the part of it on the less deep side of the plane of the
+     * other is how far it would have to be pushed along the normal of the
+     * other to be on one side of it, and the smaller of the two is taken.
+     *
+     * @param boundaryA packed boundaryA
+     * @param frameA frame of boundaryA in its position
+     * @param boundaryB packed boundaryB
+     * @param frameB frame of boundaryB in its position
+     * @return the penetration depth, 0 if one boundary is all on one side of the other
+     */
+    public static float penetrationDepth(float[] boundaryA, BoundaryFrame frameA, float[] boundaryB, BoundaryFrame frameB) {
+        return Math.min(depthThrough(boundaryA, frameB), depthThrough(boundaryB, frameA));
+    }
+
+    /**
+     * How far a packed boundary reaches past the plane of a frame on the
+     * side it reaches less far to
+     */
+    private static float depthThrough(float[] boundary, BoundaryFrame frame) {
+        Vector3f origin = frame.getOrigin();
+        Vector3f normal = frame.getNormal();
+        float above = 0f;
+        float below = 0f;
+        for (int i = 0; i + 2 < boundary.length; i += 3) {
+            float distance = (boundary[i] - origin.x) * normal.x + (boundary[i + 1] - origin.y) * normal.y + (boundary[i + 2] - origin.z) * normal.z;
+            above = Math.max(above, distance);
+            below = Math.max(below, -distance);
+        }
+        return Math.min(above, below);
+    }
+
+    /**
+     * Same as getBountdaryNormal, for a boundary packed with x, y and z of
+     * each vertex one after the other.
+     *
+     * @param boundary packed vertices of the boudary
+     * @param store vector to store the normal in
+     * @return true if the boundary has a normal
+     */
+    public static boolean getBountdaryNormal(float[] boundary, Vector3f store) {
+        TempVars vars = TempVars.get();
+        try {
+            int size = boundary.length / 3;
+            for (int i = 0; i < size; i++) {
+                int previous = ((size + i - 1) % size) * 3;
+                int next = ((i + 1) % size) * 3;
+                int point = i * 3;
+                Vector3f toPrevious = vars.vect1.set(boundary[previous] - boundary[point],
+                        boundary[previous + 1] - boundary[point + 1],
+                        boundary[previous + 2] - boundary[point + 2]).normalizeLocal();
+                Vector3f toNext = vars.vect2.set(boundary[next] - boundary[point],
+                        boundary[next + 1] - boundary[point + 1],
+                        boundary[next + 2] - boundary[point + 2]).normalizeLocal();
+                store.set(toPrevious).crossLocal(toNext);
+                if (store.length() > FLT_EPSILON) {
+                    store.normalizeLocal();
+                    return true;
+                }
             }
+            return false;
+        } finally {
+            vars.release();
         }
+    }
 
-        if (collisionList.size() < 1) {
-            return null;
-        } else {
-            return collisionList;
+    /**
+     * Turns a packed boundary into vectors
+     *
+     * @param boundary x, y and z of each vertex one after the other
+     * @return the vertices
+     */
+    public static Vector3f[] toVectors(float[] boundary) {
+        Vector3f[] vectors = new Vector3f[boundary.length / 3];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new Vector3f(boundary[i * 3], boundary[i * 3 + 1], boundary[i * 3 + 2]);
         }
+        return vectors;
     }
+
     /**
-     * checks if an ArrayList of Vector3f contains a target
-     * @param list ArrayList
-     * @param target Target
-     * @return true if contains, false otherwise.
+     * Packs a boundary into a float array
+     *
+     * @param boundary the vertices
+     * @return x, y and z of each vertex one after the other
      */
-    private static boolean containsVector3f(ArrayList<Vector3f> list, Vector3f target) {
-        for (Vector3f point : list) {
-            if (target.distance(point) < Util.FLT_EPSILON) {
-                return true;
+    public static float[] toPacked(Vector3f[] boundary) {
+        float[] packed = new float[boundary.length * 3];
+        for (int i = 0; i < boundary.length; i++) {
+            packed[i * 3] = boundary[i].x;
+            packed[i * 3 + 1] = boundary[i].y;
+            packed[i * 3 + 2] = boundary[i].z;
+        }
+        return packed;
+    }
+
+    /**
+     * Gets the points where the edges of one boundary go through another
+     * boundary, only allocating for the points found. The edges are tested
+     * against the plane of the frame on the packed floats, and only points
+     * where an edge goes through the plane are tested in the frame.
+     *
+     * @param edges packed boundary whose edges are checked
+     * @param frame frame of the boundary the edges could go through
+     * @param collisionList list to add the points to, can be null
+     * @param vars temporary vectors to use
+     * @return the list with the points added, null if there are none
+     */
+    private static ArrayList<Vector3f> edgesThroughBoundary(float[] edges, BoundaryFrame frame, ArrayList<Vector3f> collisionList, TempVars vars) {
+        Vector3f direction = vars.vect3;
+        Vector3f planeCollision = vars.vect4;
+        Vector3f point = vars.vect5;
+        Vector3f nextPoint = vars.vect6;
+        int size = edges.length / 3;
+        for (int i = 0; i < size; i++) {
+            int next = ((i + 1) % size) * 3;
+            point.set(edges[i * 3], edges[i * 3 + 1], edges[i * 3 + 2]);
+            nextPoint.set(edges[next], edges[next + 1], edges[next + 2]);
+            direction.set(nextPoint).subtractLocal(point).normalizeLocal();
+            if (Util.rayPlaneIntersection(point, direction, frame.getOrigin(), frame.getNormal(), planeCollision)
+                    && planeCollision.distanceSquared(point) < point.distanceSquared(nextPoint)
+                    && planeCollision.distanceSquared(nextPoint) > FLT_EPSILON
+                    && planeCollision.distanceSquared(point) > FLT_EPSILON
+                    && frame.contains(planeCollision) && !frame.onBoundary(planeCollision)) {
+                if (collisionList == null) {
+                    collisionList = new ArrayList<>();
+                }
+                collisionList.add(planeCollision.clone());
             }
         }
-        return false;
+        return collisionList;
     }
 }
@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2018 Yin Fung Evans Chan
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of folding a design without any graphics
+ * @author Evans
+ */
+public class PopUpBookTreeTest {
+
+    private PopUpBookTree book;
+    private PopUpBookTree.PatchNode patchA;
+    private PopUpBookTree.PatchNode patchB;
+
+    public PopUpBookTreeTest() {
+    }
+
+    /**
+     * Builds a book with one V-fold standing on the spine
+     */
+    @Before
+    public void setUp() {
+        book = new PopUpBookTree(4f, 5.5f);
+        float side = FastMath.tan(FastMath.PI * 3f / 16f);
+        Vector3f center = new Vector3f(0, 0, 0);
+        Vector3f top = new Vector3f(0, 1f / 1.61f, 0);
+        Vector3f pointA = new Vector3f(side, 0, -1);
+        Vector3f pointB = new Vector3f(-side, 0, -1);
+        patchA = book.addPatch(book.getBack(), new Vector3f[]{pointA, center, top}, new Vector3f[]{pointA.clone(), center.clone()});
+        patchB = book.addPatch(book.getFront(), new Vector3f[]{pointB.clone(), center.clone(), top.clone()}, new Vector3f[]{pointB.clone(), center.clone()});
+        book.addJoint(patchA, patchB, new Vector3f[]{top.clone(), center.clone()}, "D1Joint");
+    }
+
+    public void assertVector3f(Vector3f vectorA, Vector3f vectorB, float tolerance) {
+        Assert.assertEquals(0.0f, vectorA.distance(vectorB), tolerance);
+    }
+
+    /**
+     * Test of fold method, the two patches of the V-fold stay joined at every percentage.
+     */
+    @Test
+    public void testFoldKeepsJoint() {
+        System.out.println("fold");
+        for (int i = 1; i < 20; i++) {
+            book.fold(i / 20f);
+            assertVector3f(patchA.getTranslatedBoundary()[2], patchB.getTranslatedBoundary()[2], 0.001f);
+            assertVector3f(patchA.getTranslatedBoundary()[1], Vector3f.ZERO, 0.001f);
+        }
+    }
+
+    /**
+     * Test of fold method, the front cover stands up half way.
+     */
+    @Test
+    public void testFoldCover() {
+        System.out.println("foldCover");
+        book.fold(0.5f);
+        for (Vector3f point : book.getFront().getTranslatedBoundary()) {
+            assertEquals(0f, point.x, 0.001f);
+        }
+        assertEquals(4f, FastMath.abs(book.getFront().getTranslatedBoundary()[1].y), 0.001f);
+    }
+
+    /**
+     * Test of predictWhenFold method, of class PopUpBookTree.
+     */
+    @Test
+    public void testPredictWhenFold() {
+        System.out.println("predictWhenFold");
+        Vector3f predicted = book.predictWhenFold(patchA, patchA.boundary[2], 0.3f);
+        book.fold(0.3f);
+        assertVector3f(predicted, patchA.getTranslatedBoundary()[2], 0.001f);
+    }
+
+    /**
+     * Test of predictWhenFold method for many points, it gives the same points as predicting them one by one.
+     */
+    @Test
+    public void testPredictWhenFoldBatch() {
+        System.out.println("predictWhenFoldBatch");
+        PopUpBookTree.PatchNode[] parents = {patchA, patchB, patchA, book.getFront()};
+        Vector3f[] points = {patchA.boundary[2], patchB.boundary[0], patchA.boundary[0], book.getFront().boundary[1]};
+        float[] percents = {0.5f, 0.01f, 0.01f, 0.5f};
+        Vector3f[] predicted = book.predictWhenFold(parents, points, percents);
+        for (int i = 0; i < points.length; i++) {
+            assertVector3f(book.predictWhenFold(parents[i], points[i], percents[i]), predicted[i], 0.0001f);
+        }
+    }
+
+    /**
+     * Test of snapshot method, folding a snapshot does not move the tree it was taken from.
+     */
+    @Test
+    public void testSnapshot() {
+        System.out.println("snapshot");
+        Vector3f unfolded = patchA.getTranslatedBoundary()[2].clone();
+        PopUpBookTree snapshot = book.snapshot();
+        snapshot.fold(0.5f);
+        assertVector3f(unfolded, patchA.getTranslatedBoundary()[2], 0f);
+        book.fold(0.5f);
+        assertVector3f(patchA.getTranslatedBoundary()[2], snapshot.getCopy(patchA).getTranslatedBoundary()[2], 0.0001f);
+        assertEquals(book.getPatches().size(), snapshot.getPatches().size());
+    }
+
+    /**
+     * Test of getBoundarys method, the phantom patches of the preview are not added to the tree.
+     */
+    @Test
+    public void testGetBoundarysLeavesTree() {
+        System.out.println("getBoundarys");
+        book.fold(0.3f);
+        Vector3f folded = patchA.getTranslatedBoundary()[2].clone();
+        book.getBoundarys(book.getBack(), book.getFront(),
+                new Vector3f(1, 0, 0.5f), new Vector3f(1, 0, 1), new Vector3f(-1, 0, 0.5f), new Vector3f(-1, 0, 1),
+                new Vector3f(0, 1, 0.5f), new Vector3f(1, 0, 0.5f), new Vector3f(0, 1, 0.5f), new Vector3f(-1, 0, 0.5f),
+                "D1Joint");
+        assertEquals(4, book.getPatches().size());
+        assertEquals(1, book.getBack().next.size());
+        assertEquals(1, book.getFront().next.size());
+        assertVector3f(folded, patchA.getTranslatedBoundary()[2], 0f);
+    }
+
+    /**
+     * Test of getCollisions and getFirstContact methods, a V-fold folds flat without touching anything.
+     */
+    @Test
+    public void testNoCollisions() {
+        System.out.println("getCollisions");
+        for (int i = 1; i < 10; i++) {
+            book.fold(i / 10f);
+            assertNull(book.getCollisions());
+        }
+        assertEquals(-1f, book.getFirstContact(0f, 0.9f), 0f);
+    }
+
+    /**
+     * Test of getCollisionReport method, a wall standing in front of the V-fold is hit by patch B and the report
+     * of a fold percentage leaves the pose alone.
+     */
+    @Test
+    public void testCollisionReport() {
+        System.out.println("getCollisionReport");
+        assertTrue(book.getCollisionReport().isEmpty());
+        PopUpBookTree.PatchNode wall = book.addPatch(book.getBack(),
+                new Vector3f[]{new Vector3f(0.3f, 0, -2), new Vector3f(0.3f, 0, 2), new Vector3f(0.3f, 0.4f, 2), new Vector3f(0.3f, 0.4f, -2)},
+                new Vector3f[]{new Vector3f(0.3f, 0, -2), new Vector3f(0.3f, 0, 2)});
+        book.fold(0.2f);
+        Vector3f folded = patchA.getTranslatedBoundary()[2].clone();
+        CollisionReport report = book.getCollisionReport(0.5f);
+        assertSame(report, book.getCollisionReport(0.5f));
+        assertEquals(0.5f, report.getPercent(), 0f);
+        assertFalse(report.isEmpty());
+        assertTrue(report.getMaxDepth() > 0f);
+        for (CollisionReport.Pair pair : report.getPairs()) {
+            assertTrue(book.getPatch(pair.getIdA()) == wall || book.getPatch(pair.getIdB()) == wall);
+            assertFalse(pair.getPoints().isEmpty());
+            //changing the points handed out leaves the report alone
+            Vector3f point = pair.getPoints().get(0);
+            point.addLocal(1f, 1f, 1f);
+            assertFalse(point.equals(pair.getPoints().get(0)));
+        }
+        assertVector3f(folded, patchA.getTranslatedBoundary()[2], 0f);
+        assertEquals(0.2f, book.getCollisionReport().getPercent(), 0f);
+        book.reset();
+        assertEquals(0f, book.getCollisionReport().getPercent(), 0f);
+        //the report asked for last is kept while others are dropped to make room
+        for (int i = 0; i <= 300; i++) {
+            book.getCollisionReport(0.5f);
+            book.getCollisionReport(i / 1000f);
+        }
+        assertSame(report, book.getCollisionReport(0.5f));
+    }
+
+    /**
+     * Test of getCollisionTimeline method, the V-fold folds flat without touching anything, and a wall standing
+     * beside it is hit from where getFirstContact finds the first contact until the book is closed.
+     */
+    @Test
+    public void testCollisionTimeline() {
+        System.out.println("getCollisionTimeline");
+        assertTrue(book.getCollisionTimeline().isEmpty());
+        PopUpBookTree.PatchNode wall = book.addPatch(book.getBack(),
+                new Vector3f[]{new Vector3f(0.3f, 0, 0.2f), new Vector3f(0.3f, 0, 2), new Vector3f(0.3f, 0.4f, 2), new Vector3f(0.3f, 0.4f, 0.2f)},
+                new Vector3f[]{new Vector3f(0.3f, 0, 0.2f), new Vector3f(0.3f, 0, 2)});
+        CollisionTimeline timeline = book.snapshot().getCollisionTimeline();
+        assertEquals(1, timeline.getIntervals().size());
+        CollisionTimeline.Interval interval = timeline.getIntervals().get(0);
+        assertEquals(book.getFirstContact(0f, 0.98f), interval.getFrom(), 0.001f);
+        assertTrue(interval.getTo() > 0.98f);
+        assertTrue(interval.contains(interval.getDeepest().getPercent()));
+        assertTrue(Arrays.binarySearch(interval.getIds(), book.getPatches().indexOf(wall)) >= 0);
+        assertFalse(timeline.isColliding(interval.getFrom() / 2f));
+    }
+
+    /**
+     * Test of getCollisionTimeline method, a short wall is brushed by the V-fold for less than one step of the
+     * sweep before it is hit for good, and the brush is kept as an interval of its own.
+     */
+    @Test
+    public void testCollisionTimelineShortContact() {
+        System.out.println("getCollisionTimeline short contact");
+        book.addPatch(book.getBack(),
+                new Vector3f[]{new Vector3f(0.25f, 0, -0.45f), new Vector3f(0.25f, 0, -0.4f), new Vector3f(0.25f, 0.2f, -0.4f), new Vector3f(0.25f, 0.2f, -0.45f)},
+                new Vector3f[]{new Vector3f(0.25f, 0, -0.45f), new Vector3f(0.25f, 0, -0.4f)});
+        CollisionTimeline timeline = book.snapshot().getCollisionTimeline();
+        assertEquals(2, timeline.getIntervals().size());
+        CollisionTimeline.Interval brush = timeline.getIntervals().get(0);
+        assertTrue(brush.getTo() - brush.getFrom() < 0.02f);
+        assertTrue(brush.getTo() < timeline.getIntervals().get(1).getFrom());
+        book.fold((brush.getFrom() + brush.getTo()) / 2f);
+        assertFalse(book.getCollisionReport().isEmpty());
+    }
+
+    /**
+     * Test of foldCached method, the design is folded normally until a trajectory is cached, the cached poses stay
+     * close to the solved ones with the joint closed, and a trajectory is dropped when the design changes.
+     */
+    @Test
+    public void testFoldCached() {
+        System.out.println("foldCached");
+        book.setTrajectorySamples(8);
+        book.foldCached(0.3f);
+        assertFalse(book.hasTrajectory());
+        book.warmTrajectory();
+        assertTrue(book.hasTrajectory());
+        FoldTrajectory trajectory = book.snapshot().sampleTrajectory();
+        for (int i = 0; i <= 50; i++) {
+            float percent = 0.999f * i / 50;
+            book.foldCached(percent);
+            assertEquals(percent, book.getCollisionReport().getPercent(), 0f);
+            Vector3f cachedA = patchA.getTranslatedBoundary()[0].clone();
+            Vector3f cachedB = patchB.getTranslatedBoundary()[0].clone();
+            assertVector3f(patchA.getTranslatedBoundary()[2], patchB.getTranslatedBoundary()[2], 0.002f);
+            book.reset();
+            book.fold(percent);
+            assertVector3f(cachedA, patchA.getTranslatedBoundary()[0], 0.002f);
+            assertVector3f(cachedB, patchB.getTranslatedBoundary()[0], 0.002f);
+        }
+        book.addPatch(book.getBack(), new Vector3f[]{new Vector3f(1, 0, 1), new Vector3f(2, 0, 1), new Vector3f(2, 0.5f, 1)},
+                new Vector3f[]{new Vector3f(1, 0, 1), new Vector3f(2, 0, 1)});
+        assertFalse(book.hasTrajectory());
+        assertFalse(book.setTrajectory(trajectory));
+    }
+
+    /**
+     * Test of getFirstContact method, a range that is already colliding at its start gives the start,
+     * a range out of 0 and 1 is clamped, a reversed range is refused and the pose is left alone.
+     */
+    @Test
+    public void testFirstContactRange() {
+        System.out.println("getFirstContact range");
+        book.addPatch(book.getBack(),
+                new Vector3f[]{new Vector3f(0.3f, 0, 0.2f), new Vector3f(0.3f, 0, 2), new Vector3f(0.3f, 0.4f, 2), new Vector3f(0.3f, 0.4f, 0.2f)},
+                new Vector3f[]{new Vector3f(0.3f, 0, 0.2f), new Vector3f(0.3f, 0, 2)});
+        book.fold(0.2f);
+        Vector3f folded = patchA.getTranslatedBoundary()[2].clone();
+        assertEquals(0.6f, book.getFirstContact(0.6f, 0.9f), 0f);
+        assertEquals(book.getFirstContact(0f, 0.98f), book.getFirstContact(-1f, 0.98f), 0f);
+        try {
+            book.getFirstContact(0.5f, 0.2f);
+            fail("a reversed range is refused");
+        } catch (IllegalArgumentException e) {
+        }
+        assertVector3f(folded, patchA.getTranslatedBoundary()[2], 0f);
+        assertEquals(0.2f, book.getCollisionReport().getPercent(), 0f);
+    }
+
+    /**
+     * Adds V-folds standing on the spine in bands beside the V-fold of setUp, each with a V-fold nested on top of it.
+     * The joints of the even bands are added in the order the V-folds stand up, the joints of the odd bands
+     * the other way round, so some joints come before the joint they wait for.
+     * @param bands number of bands
+     * @return the joints of setUp and of the bands, in the order they were added
+     */
+    private ArrayList<PopUpBookTree.JointNode> addBands(int bands) {
+        ArrayList<PopUpBookTree.JointNode> added = new ArrayList<>();
+        added.add(patchA.joint);
+        for (int i = 0; i < bands; i++) {
+            Vector3f spine1 = new Vector3f(0, 0, 0.5f + 2f * i / bands);
+            Vector3f spine2 = new Vector3f(0, 0, 0.5f + 2f * (i + 1) / bands);
+            PopUpBookTree.PatchNode[] outer = addVFold(book.getBack(), book.getFront(), spine1, spine2,
+                    Vector3f.UNIT_X, Vector3f.UNIT_X.negate(), Vector3f.UNIT_Y);
+            Vector3f fold1 = outer[0].boundary[1];
+            Vector3f fold2 = outer[0].boundary[2];
+            Vector3f dirrection = fold2.subtract(fold1).normalizeLocal();
+            Vector3f inA = outer[0].boundary[0].subtract(fold1);
+            inA.subtractLocal(dirrection.mult(inA.dot(dirrection))).normalizeLocal();
+            Vector3f inB = outer[1].boundary[0].subtract(fold1);
+            inB.subtractLocal(dirrection.mult(inB.dot(dirrection))).normalizeLocal();
+            PopUpBookTree.PatchNode[] inner = addVFold(outer[0], outer[1], fold1, fold2, inA, inB, inA.add(inB).negateLocal());
+            if (i % 2 == 0) {
+                added.add(join(outer));
+                added.add(join(inner));
+            } else {
+                added.add(join(inner));
+                added.add(join(outer));
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds the two patches of a V-fold across the crease between two patches, without joining them
+     * @return the two patches
+     */
+    private PopUpBookTree.PatchNode[] addVFold(PopUpBookTree.PatchNode parentA, PopUpBookTree.PatchNode parentB,
+            Vector3f crease1, Vector3f crease2, Vector3f inA, Vector3f inB, Vector3f up) {
+        float length = crease1.distance(crease2) * 0.35f;
+        Vector3f dirrection = crease2.subtract(crease1).normalizeLocal();
+        Vector3f center = crease1.add(crease2).divideLocal(2f);
+        Vector3f end = center.subtract(dirrection.mult(length));
+        float side = FastMath.tan(FastMath.PI * 3f / 16f) * length;
+        Vector3f pointA = end.add(inA.mult(side));
+        Vector3f pointB = end.add(inB.mult(side));
+        Vector3f normal = pointA.subtract(center).crossLocal(pointB.subtract(center)).normalizeLocal();
+        if (normal.dot(up) < 0) {
+            normal.negateLocal();
+        }
+        Vector3f top = center.add(normal.multLocal(length / 1.61f));
+        return new PopUpBookTree.PatchNode[]{
+            book.addPatch(parentA, new Vector3f[]{pointA, center, top}, new Vector3f[]{pointA.clone(), center.clone()}),
+            book.addPatch(parentB, new Vector3f[]{pointB, center.clone(), top.clone()}, new Vector3f[]{pointB.clone(), center.clone()})};
+    }
+
+    /**
+     * Joins the two patches of a V-fold along the line from its center to its top
+     * @return the joint
+     */
+    private PopUpBookTree.JointNode join(PopUpBookTree.PatchNode[] fold) {
+        book.addJoint(fold[0], fold[1], new Vector3f[]{fold[0].boundary[2].clone(), fold[0].boundary[1].clone()}, "D1Joint");
+        return fold[0].joint;
+    }
+
+    /**
+     * Marks a patch and its children as ready, the way a rotation did before the solve plan
+     */
+    private void markReady(PopUpBookTree.PatchNode patch, HashSet<PopUpBookTree.PatchNode> ready) {
+        ready.add(patch);
+        ready.addAll(patch.next);
+    }
+
+    /**
+     * Test of the solve plan, it fixes the joints in the order the queue of fold did before the plan: going round
+     * the joints in the order they were added and fixing every joint whose patches are both ready.
+     */
+    @Test
+    public void testSolvePlanOrder() {
+        System.out.println("solvePlan");
+        ArrayList<PopUpBookTree.JointNode> added = addBands(4);
+        HashSet<PopUpBookTree.PatchNode> ready = new HashSet<>();
+        markReady(book.getFront(), ready);
+        markReady(book.getBack(), ready);
+        LinkedList<PopUpBookTree.JointNode> queue = new LinkedList<>(added);
+        ArrayList<PopUpBookTree.JointNode> order = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            PopUpBookTree.JointNode joint = queue.remove();
+            PopUpBookTree.PatchNode first = findPatch(joint);
+            PopUpBookTree.PatchNode second = joint.theOther(first);
+            if (ready.contains(first) && ready.contains(second)) {
+                order.add(joint);
+                markReady(first, ready);
+                markReady(second, ready);
+            } else {
+                queue.add(joint);
+            }
+        }
+        assertEquals(order, book.getSolvePlan());
+        assertFalse(order.equals(added));
+    }
+
+    /**
+     * Finds a patch of a joint
+     */
+    private PopUpBookTree.PatchNode findPatch(PopUpBookTree.JointNode joint) {
+        for (PopUpBookTree.PatchNode patch : book.getPatches()) {
+            if (patch.joint == joint) {
+                return patch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test of fold method, folding on from the previous pose in small steps, more of them than are taken before
+     * the pose is rebuilt, stays as close to folding from the unfolded position as a joint may drift.
+     */
+    @Test
+    public void testIncrementalFold() {
+        System.out.println("fold incremental");
+        addBands(4);
+        ArrayList<PopUpBookTree.PatchNode> patches = book.getPatches();
+        ArrayList<Vector3f[]> stepped = new ArrayList<>();
+        for (int i = 1; i <= 160; i++) {
+            book.fold(0.9f * i / 160);
+            for (PopUpBookTree.PatchNode patch : patches) {
+                Vector3f[] boundary = patch.getTranslatedBoundary();
+                Vector3f[] copy = new Vector3f[boundary.length];
+                for (int x = 0; x < boundary.length; x++) {
+                    copy[x] = boundary[x].clone();
+                }
+                stepped.add(copy);
+            }
+        }
+        for (int i = 1; i <= 160; i++) {
+            book.reset();
+            book.fold(0.9f * i / 160);
+            for (int patch = 0; patch < patches.size(); patch++) {
+                Vector3f[] boundary = stepped.get((i - 1) * patches.size() + patch);
+                Vector3f[] expected = patches.get(patch).getTranslatedBoundary();
+                for (int x = 0; x < boundary.length; x++) {
+                    assertVector3f(expected[x], boundary[x], 0.001f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of getCollisions method, the pairs found by sorting the bounding boxes and leaving out the excluded
+     * patches are the pairs found by intersecting every two patches that are not neighbors.
+     */
+    @Test
+    public void testCollisionPairs() {
+        System.out.println("getCollisions pairs");
+        addBands(4);
+        addWall();
+        assertTrue(assertPairs() > 0);
+    }
+
+    /**
+     * Adds a wall standing on the back cover beside the spine, which the V-folds run into as the book closes
+     * @return the wall
+     */
+    private PopUpBookTree.PatchNode addWall() {
+        return book.addPatch(book.getBack(),
+                new Vector3f[]{new Vector3f(0.3f, 0, -2.5f), new Vector3f(0.3f, 0, 2.5f), new Vector3f(0.3f, 0.4f, 2.5f), new Vector3f(0.3f, 0.4f, -2.5f)},
+                new Vector3f[]{new Vector3f(0.3f, 0, -2.5f), new Vector3f(0.3f, 0, 2.5f)});
+    }
+
+    /**
+     * Folds the book in steps and checks the pairs getCollisions finds against intersecting every two patches
+     * that are not neighbors
+     * @return the number of colliding pairs over all steps
+     */
+    private int assertPairs() {
+        ArrayList<PopUpBookTree.PatchNode> patches = book.getPatches();
+        int collisions = 0;
+        for (int i = 1; i < 10; i++) {
+            book.fold(i / 10f);
+            HashSet<String> expected = new HashSet<>();
+            for (int a = 0; a < patches.size(); a++) {
+                for (int b = a + 1; b < patches.size(); b++) {
+                    PopUpBookTree.PatchNode patchA = patches.get(a);
+                    PopUpBookTree.PatchNode patchB = patches.get(b);
+                    if (!isNeighbor(patchA, patchB) && !isNeighbor(other(patchA), patchB) && !isNeighbor(other(patchB), patchA)
+                            && Util.boundboundIntersect(patchA.getTranslatedBoundary(), patchB.getTranslatedBoundary()) != null) {
+                        expected.add(a + " " + b);
+                    }
+                }
+            }
+            //the patches of each pair are added one after the other
+            ArrayList<PopUpBookTree.PatchNode> collided = new ArrayList<>();
+            book.getCollisions(collided);
+            HashSet<String> found = new HashSet<>();
+            for (int pair = 0; pair < collided.size(); pair += 2) {
+                int a = patches.indexOf(collided.get(pair));
+                int b = patches.indexOf(collided.get(pair + 1));
+                found.add(Math.min(a, b) + " " + Math.max(a, b));
+            }
+            assertEquals(expected, found);
+            collisions += found.size();
+        }
+        return collisions;
+    }
+
+    /**
+     * Checks if two patches are neighbors the way getCollisions did before the patches were excluded up front
+     */
+    private boolean isNeighbor(PopUpBookTree.PatchNode patchA, PopUpBookTree.PatchNode patchB) {
+        if (patchA == null || patchA == patchB) {
+            return false;
+        }
+        return patchA.next.contains(patchB) || patchB.next.contains(patchA) || (patchA.joint != null && patchA.joint.theOther(patchA) == patchB);
+    }
+
+    /**
+     * Gets the other patch of the joint of a patch, null if it has no joint
+     */
+    private PopUpBookTree.PatchNode other(PopUpBookTree.PatchNode patch) {
+        return patch.joint == null ? null : patch.joint.theOther(patch);
+    }
+
+    /**
+     * Test of getCollisions method, the patches excluded from the checks are worked out again when patches
+     * are deleted and added, so the pairs still match intersecting every two patches that are not neighbors.
+     */
+    @Test
+    public void testCollisionPairsAfterDelete() {
+        System.out.println("getCollisions pairs after delete");
+        ArrayList<PopUpBookTree.JointNode> added = addBands(4);
+        addWall();
+        assertPairs();
+        book.reset();
+        book.delete(findPatch(added.get(3)), new ArrayList<PopUpBookTree.PatchNode>());
+        addBands(2);
+        assertTrue(assertPairs() > 0);
+    }
+
+    /**
+     * Test of the collision report, the exact tests split over the pool give the same report as running them
+     * one after the other.
+     */
+    @Test
+    public void testSplitCollisionReport() {
+        System.out.println("getCollisionReport split");
+        addBands(16);
+        addWall();
+        int collisions = 0;
+        for (int i = 1; i < 10; i++) {
+            book.fold(i / 10f);
+            CollisionReport split = book.makeReport(i / 10f, true);
+            CollisionReport sequential = book.makeReport(i / 10f, false);
+            assertEquals(sequential.getPairs().size(), split.getPairs().size());
+            for (int x = 0; x < split.getPairs().size(); x++) {
+                CollisionReport.Pair expected = sequential.getPairs().get(x);
+                CollisionReport.Pair pair = split.getPairs().get(x);
+                assertEquals(expected.getIdA(), pair.getIdA());
+                assertEquals(expected.getIdB(), pair.getIdB());
+                assertEquals(expected.getPoints(), pair.getPoints());
+                assertEquals(expected.getDepth(), pair.getDepth(), 0f);
+            }
+            collisions += split.getPairs().size();
+        }
+        assertTrue(collisions > 0);
+    }
+}
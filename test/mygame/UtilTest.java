@@ -92,6 +92,28 @@ public class UtilTest {
 
     }
 
+    /**
+     * Test of rotatePoint method with a store vector, of class Util.
+     */
+    @Test
+    public void testRotatePointStore() {
+        System.out.println("rotatePointStore");
+        Vector3f axis1 = new Vector3f(5, 0, 0);
+        Vector3f axis2 = new Vector3f(-5, 0, 0);
+        float pi = FastMath.PI;
+
+        //Case: store is a separate vector
+        Vector3f point = new Vector3f(0, 2, 0);
+        Vector3f store = new Vector3f();
+        assertSame(Util.rotatePoint(point, axis1, axis2, pi * 0.5f, store), store);
+        assertVector3f(store, Util.rotatePoint(point, axis1, axis2, pi * 0.5f));
+        assertVector3f(point, new Vector3f(0, 2, 0));
+
+        //Case: store is the point itself
+        Util.rotatePoint(point, axis1, axis2, pi * 0.5f, point);
+        assertVector3f(point, store);
+    }
+
     /**
      * Test of isBetween method, of class Util.
      */
@@ -190,6 +212,21 @@ public class UtilTest {
         assertVector3f(Util.closestPointOnLine(linePoint, lineDirrection, target), new Vector3f(0, 0, 0));
     }
 
+    /**
+     * Test of closestPointOnLine method with a store vector, of class Util.
+     */
+    @Test
+    public void testClosestPointOnLineStore() {
+        System.out.println("closestPointOnLineStore");
+        Vector3f linePoint = new Vector3f(1, 1, 0);
+        Vector3f lineDirrection = new Vector3f(0, 2, 0);
+
+        //Case: store is the target itself
+        Vector3f target = new Vector3f(3, -4, 5);
+        assertSame(Util.closestPointOnLine(linePoint, lineDirrection, target, target), target);
+        assertVector3f(target, new Vector3f(1, -4, 0));
+    }
+
     /**
      * Test of closestPointToDirrection method, of class Util.
      */
@@ -269,7 +306,24 @@ public class UtilTest {
         //Test OutSide of boundary
         assertFalse(Util.inBoundary(new Vector3f(2, 1, 0), boundary));
 
-
+        //Test OutSide of a small tilted boundary, next to it
+        boundary = new Vector3f[]{
+            new Vector3f(0.07970554f, 1.2764335E-4f, -1.3174331f),
+            new Vector3f(0.07226223f, 1.2601912E-4f, -1.3062935f),
+            new Vector3f(0.07801521f, 1.269877E-4f, -1.3024495f)};
+        assertFalse(Util.inBoundary(new Vector3f(0.091506414f, 1.2972938E-4f, -1.3138574f), boundary));
+
+        //Test Inside of a tilted boundary, with a frame kept for the boundary
+        boundary = new Vector3f[]{
+            new Vector3f(0.0f, 0.0f, 2.75f),
+            new Vector3f(3.99998f, 0.01255952f, 2.75f),
+            new Vector3f(3.99998f, 0.01255952f, -2.75f),
+            new Vector3f(0.0f, 0.0f, -2.75f)};
+        BoundaryFrame frame = new BoundaryFrame(boundary);
+        assertTrue(Util.inBoundary(new Vector3f(0.077707715f, 0.00024399415f, -2.225216f), frame));
+        assertFalse(Util.inBoundary(new Vector3f(-0.077707715f, -0.00024399415f, -2.225216f), frame));
+        assertFalse(Util.onBoundary(new Vector3f(0.077707715f, 0.00024399415f, -2.225216f), frame));
+        assertTrue(Util.onBoundary(new Vector3f(2f, 0.00627976f, 2.75f), frame));
     }
 
     /**
@@ -491,6 +545,8 @@ public class UtilTest {
         assertVector3f(Util.segmentIntesection(new Vector3f(1, 0, 0), new Vector3f(4, 0, 0), new Vector3f(8, 0, 0), new Vector3f(4, 0, 0)), new Vector3f(4, 0, 0));
         assertVector3f(Util.segmentIntesection(new Vector3f(1, 0, 0), new Vector3f(4, 0, 0), new Vector3f(1, 0, 0), new Vector3f(8, 4, 0)), new Vector3f(1, 0, 0));
         assertVector3f(Util.segmentIntesection(new Vector3f(1, 0, 0), new Vector3f(4, 0, 0), new Vector3f(8, 4, 0), new Vector3f(1, 0, 0)), new Vector3f(1, 0, 0));
+        //an end that isBetween takes for the same point is the same point here too
+        assertVector3f(Util.segmentIntesection(new Vector3f(1, 0, 0), new Vector3f(4, 0, 0), new Vector3f(1.00005f, 0, 0), new Vector3f(8, 4, 0)), new Vector3f(1.00005f, 0, 0));
 
         //Test Intersection of Crossing segments
         //
@@ -691,6 +747,34 @@ public class UtilTest {
 
     }
 
+    /**
+     * Test of rayBoxExit method, of class Util.
+     */
+    @Test
+    public void testRayBoxExit() {
+        System.out.println("rayBoxExit");
+        Vector3f boxMin = new Vector3f(0, -0.5f, -2);
+        Vector3f boxMax = new Vector3f(4, 0.5f, 2);
+        Vector3f store = new Vector3f();
+
+        //Case: ray starts inside the box
+        assertTrue(Util.rayBoxExit(new Vector3f(1, 0, 0), new Vector3f(1, 0, 1), boxMin, boxMax, store));
+        assertVector3f(store, new Vector3f(3, 0, 2));
+
+        //Case: ray starts outside and passes through the box
+        assertTrue(Util.rayBoxExit(new Vector3f(-2, 0, 0), new Vector3f(3, 0, 0), boxMin, boxMax, store));
+        assertVector3f(store, new Vector3f(4, 0, 0));
+
+        //Case: ray points away from the box
+        assertFalse(Util.rayBoxExit(new Vector3f(-2, 0, 0), new Vector3f(-1, 0, 0), boxMin, boxMax, store));
+
+        //Case: ray parallel to a slab it is outside of
+        assertFalse(Util.rayBoxExit(new Vector3f(1, 1, 0), new Vector3f(1, 0, 0), boxMin, boxMax, store));
+
+        //Case: ray without a direction
+        assertFalse(Util.rayBoxExit(new Vector3f(1, 0, 0), new Vector3f(0, 0, 0), boxMin, boxMax, store));
+    }
+
     /**
      * Test of boundboundIntersect method, of class Util.
      */
@@ -952,4 +1036,105 @@ public class UtilTest {
         assertNull(result);
     }
 
+    /**
+     * Test of boundboundIntersect method for packed boundaries, of class Util.
+     */
+    @Test
+    public void testBoundboundIntersectPacked() {
+        System.out.println("boundboundIntersectPacked");
+        //Inter linked boundaries (Non coplanar)
+        float[] boundaryA = new float[]{
+            -1, -2, 0,
+            -1, 2, 0,
+            2, 2, 0,
+            2, -2, 0};
+        float[] boundaryB = new float[]{
+            1, 0, 2,
+            1, 0, -2,
+            -2, 0, -2,
+            -2, 0, 2};
+        ArrayList<Vector3f> result = Util.boundboundIntersect(boundaryA, boundaryB);
+        assertTrue(result.size() == 2 && result.contains(new Vector3f(-1, 0, 0)) && result.contains(new Vector3f(1, 0, 0)));
+        assertEquals(Util.boundboundIntersect(Util.toVectors(boundaryA), Util.toVectors(boundaryB)), result);
+
+        //Boundaries with only one touching edge (Non coplanar)
+        boundaryA = new float[]{
+            -2, 0, -2,
+            -2, 0, 2,
+            0, 0, 2,
+            0, 0, -2};
+        boundaryB = new float[]{
+            2, -2, 0,
+            2, 2, 0,
+            0, 2, 0,
+            0, -2, 0};
+        assertNull(Util.boundboundIntersect(boundaryA, boundaryB));
+    }
+
+    /**
+     * Test of triangulate method, of class Util.
+     */
+    @Test
+    public void testTriangulate() {
+        System.out.println("triangulate");
+        //Comb with many concave teeth, clockwise when seen from above
+        int teeth = 50;
+        ArrayList<Vector3f> comb = new ArrayList<>();
+        comb.add(new Vector3f(0, 0, 0));
+        for (int i = 0; i < teeth; i++) {
+            comb.add(new Vector3f(i * 2, 0, 4));
+            comb.add(new Vector3f(i * 2 + 1, 0, 4));
+            comb.add(new Vector3f(i * 2 + 1, 0, 1));
+            comb.add(new Vector3f(i * 2 + 2, 0, 1));
+        }
+        comb.add(new Vector3f(teeth * 2, 0, 0));
+        Vector3f[] vertices = comb.toArray(new Vector3f[comb.size()]);
+        int[] triangles = Util.triangulate(vertices);
+        assertEquals((vertices.length - 2) * 3, triangles.length);
+
+        //triangles cover the polygon once, all with the same winding as the polygon
+        float area = 0;
+        for (int i = 0; i < triangles.length; i += 3) {
+            Vector3f a = vertices[triangles[i]];
+            Vector3f b = vertices[triangles[i + 1]];
+            Vector3f c = vertices[triangles[i + 2]];
+            float y = b.subtract(a).cross(c.subtract(a)).y;
+            assertTrue(y >= 0);
+            area += y / 2;
+        }
+        assertEquals(teeth * 5, area, Util.FLT_EPSILON);
+
+        //Triangle
+        assertArrayEquals(new int[]{2, 0, 1}, Util.triangulate(new Vector3f[]{
+            new Vector3f(0, 0, 0), new Vector3f(1, 0, 0), new Vector3f(0, 1, 0)}));
+    }
+
+    /**
+     * Test of orient2d method, of class Util.
+     */
+    @Test
+    public void testOrient2d() {
+        System.out.println("orient2d");
+        assertEquals(1, Util.orient2d(0, 0, 1, 0, 0, 1));
+        assertEquals(-1, Util.orient2d(0, 0, 0, 1, 1, 0));
+        assertEquals(0, Util.orient2d(0, 0, 1, 1, 3, 3));
+
+        //Nearly in line points far from the origin, one float step off the line either way
+        float x = 12345.678f;
+        float y = Math.nextUp(x);
+        assertEquals(0, Util.orient2d(x, x, y, y, 2 * x, 2 * x));
+        assertEquals(1, Util.orient2d(0.5f, 0.5f, x, x, y, Math.nextUp(y)));
+        assertEquals(-1, Util.orient2d(0.5f, 0.5f, x, x, y, x));
+
+        //Answers agree whichever way round the points are asked about
+        for (int i = 0; i < 64; i++) {
+            float ax = 0.1f * i, ay = 0.1f * i;
+            float bx = 17.3f + Math.ulp(17.3f) * (i % 5 - 2), by = 17.3f;
+            float cx = 1000.7f, cy = 1000.7f + Math.ulp(1000.7f) * (i % 3 - 1);
+            int orient = Util.orient2d(ax, ay, bx, by, cx, cy);
+            assertEquals(orient, Util.orient2d(bx, by, cx, cy, ax, ay));
+            assertEquals(orient, Util.orient2d(cx, cy, ax, ay, bx, by));
+            assertEquals(-orient, Util.orient2d(bx, by, ax, ay, cx, cy));
+        }
+    }
 }